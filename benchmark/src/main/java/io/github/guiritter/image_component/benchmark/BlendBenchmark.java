@@ -0,0 +1,104 @@
+package io.github.guiritter.image_component.benchmark;
+
+import io.github.guiritter.image_component.BlendComposite;
+import io.github.guiritter.image_component.BlendMode;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Blends a translucent layer into a premultiplied target by each
+ * {@link BlendMode}, through {@link BlendComposite} and through a naive
+ * implementation that reads and writes one pixel at a time with
+ * {@code getRGB} and {@code setRGB}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx1g"})
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class BlendBenchmark {
+
+    private static final int SIDE = 1024;
+
+    private BufferedImage layer;
+
+    @Param({"NORMAL", "MULTIPLY", "SCREEN", "OVERLAY",
+     "DARKEN", "LIGHTEN", "DIFFERENCE", "ADD"})
+    public BlendMode mode;
+
+    private BufferedImage target;
+
+    /**
+     * Blends two colors by the mode, as in the W3C compositing specification.
+     */
+    private static double blend(BlendMode mode, double source, double target) {
+        switch (mode) {
+            case MULTIPLY: return source * target;
+            case SCREEN: return source + target - (source * target);
+            case OVERLAY: return (target <= 0.5)
+             ? (2 * source * target)
+             : (1 - (2 * (1 - source) * (1 - target)));
+            case DARKEN: return Math.min(source, target);
+            case LIGHTEN: return Math.max(source, target);
+            case DIFFERENCE: return Math.abs(source - target);
+            default: return source;
+        }
+    }
+
+    @Benchmark
+    public BufferedImage composite() {
+        Graphics2D g = target.createGraphics();
+        g.setComposite(BlendComposite.getInstance(mode, 0.75f));
+        g.drawImage(layer, 0, 0, null);
+        g.dispose();
+        return target;
+    }
+
+    @Benchmark
+    public BufferedImage naive() {
+        double opacity = 0.75;
+        for (int y = 0; y < SIDE; y++) {
+            for (int x = 0; x < SIDE; x++) {
+                int s = layer.getRGB(x, y);
+                int t = target.getRGB(x, y);
+                double sa = ((s >>> 24) / 255.0) * opacity;
+                double ta = (t >>> 24) / 255.0;
+                double alpha = (mode == BlendMode.ADD)
+                 ? Math.min(1, sa + ta) : (sa + ta - (sa * ta));
+                int result = ((int) Math.round(alpha * 255)) << 24;
+                for (int shift = 16; shift >= 0; shift -= 8) {
+                    double sc = ((s >> shift) & 0xFF) / 255.0;
+                    double tc = ((t >> shift) & 0xFF) / 255.0;
+                    double color = (mode == BlendMode.ADD)
+                     ? Math.min(1, (sa * sc) + (ta * tc))
+                     : ((sa * (1 - ta) * sc) + (sa * ta * blend(mode, sc, tc))
+                      + ((1 - sa) * ta * tc));
+                    color = (alpha == 0) ? 0 : Math.min(1, color / alpha);
+                    result |= ((int) Math.round(color * 255)) << shift;
+                }
+                target.setRGB(x, y, result);
+            }
+        }
+        return target;
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        layer = Images.noise(SIDE, SIDE, BufferedImage.TYPE_INT_ARGB_PRE, 0);
+        target = Images.noise(SIDE, SIDE, BufferedImage.TYPE_INT_ARGB_PRE, 1);
+    }
+}
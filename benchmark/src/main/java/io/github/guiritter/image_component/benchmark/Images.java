@@ -0,0 +1,55 @@
+package io.github.guiritter.image_component.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Creates the images used by the benchmarks.
+ */
+final class Images {
+
+    /**
+     * Maps the names used in benchmark parameters to image types.
+     * @param name the name of a {@code BufferedImage.TYPE_*} constant,
+     * without the prefix
+     * @return the type
+     */
+    static int type(String name) {
+        switch (name) {
+            case "INT_RGB": return BufferedImage.TYPE_INT_RGB;
+            case "INT_ARGB": return BufferedImage.TYPE_INT_ARGB;
+            case "INT_ARGB_PRE": return BufferedImage.TYPE_INT_ARGB_PRE;
+            case "3BYTE_BGR": return BufferedImage.TYPE_3BYTE_BGR;
+            case "4BYTE_ABGR": return BufferedImage.TYPE_4BYTE_ABGR;
+            case "BYTE_GRAY": return BufferedImage.TYPE_BYTE_GRAY;
+            default: throw new IllegalArgumentException(name);
+        }
+    }
+
+    /**
+     * Creates an image filled with noise, half of it translucent
+     * if the type has alpha.
+     * @param width width of the image
+     * @param height height of the image
+     * @param type type of the image
+     * @param seed so that every run uses the same pixels
+     * @return the image
+     */
+    static BufferedImage noise(int width, int height, int type, long seed) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(seed);
+        int row[] = new int[width];
+        int x;
+        int y;
+        for (y = 0; y < height; y++) {
+            for (x = 0; x < width; x++) {
+                int alpha = (x < (width / 2)) ? 0xFF : random.nextInt(256);
+                row[x] = (alpha << 24) | random.nextInt(1 << 24);
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+
+    private Images() {}
+}
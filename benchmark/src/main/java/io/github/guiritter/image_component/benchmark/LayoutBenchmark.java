@@ -0,0 +1,68 @@
+package io.github.guiritter.image_component.benchmark;
+
+import io.github.guiritter.image_component.ImageComponent;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Layout queries, which layout managers call many times per layout.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class LayoutBenchmark {
+
+    private ImageComponent component;
+
+    private final Dimension reused = new Dimension();
+
+    @Benchmark
+    public Dimension maximumSize() {
+        return component.getMaximumSize();
+    }
+
+    @Benchmark
+    public Dimension minimumSize() {
+        return component.getMinimumSize();
+    }
+
+    @Benchmark
+    public Dimension preferredSize() {
+        return component.getPreferredSize();
+    }
+
+    @Setup
+    public void setUp() {
+        component = new ImageComponent(
+         new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB));
+    }
+
+    @Benchmark
+    public Dimension size() {
+        return component.getSize();
+    }
+
+    @Benchmark
+    public Dimension sizeReused() {
+        return component.getSize(reused);
+    }
+
+    @Benchmark
+    public void update() {
+        component.setImage(component.getImage());
+    }
+}
@@ -0,0 +1,24 @@
+package io.github.guiritter.image_component.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with allocation profiling turned on. Accepts the
+ * same arguments as JMH's own main class, for example
+ * {@code java -jar benchmarks.jar Stack -rf json -rff result.json}.
+ */
+public final class Main {
+
+    public static void main(String args[])
+     throws CommandLineOptionException, RunnerException {
+        new Runner(new OptionsBuilder()
+         .parent(new CommandLineOptions(args))
+         .addProfiler(GCProfiler.class)
+         .build()).run();
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.guiritter.image_component.benchmark;
+
+import io.github.guiritter.image_component.ImageComponent;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Paints a single image component into an offscreen target, as a full
+ * repaint and as a small repaint region, for the common image types,
+ * as they are and converted by {@link ImageComponent#setFastFormat(boolean)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx1g"})
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class PaintBenchmark {
+
+    /**
+     * Side of the repaint region when clipped,
+     * as when scrolling a viewport.
+     */
+    private static final int CLIP_SIDE = 256;
+
+    private static final int SIDE = 2048;
+
+    @Param({"false", "true"})
+    public boolean clipped;
+
+    private ImageComponent component;
+
+    @Param({"false", "true"})
+    public boolean fastFormat;
+
+    private BufferedImage target;
+
+    @Param({"INT_RGB", "INT_ARGB", "INT_ARGB_PRE",
+     "3BYTE_BGR", "4BYTE_ABGR", "BYTE_GRAY"})
+    public String type;
+
+    @Benchmark
+    public void paint() {
+        Graphics2D g = target.createGraphics();
+        if (clipped) {
+            g.clipRect((SIDE - CLIP_SIDE) / 2, (SIDE - CLIP_SIDE) / 2,
+             CLIP_SIDE, CLIP_SIDE);
+        }
+        component.paint(g);
+        g.dispose();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        component = new ImageComponent(
+         Images.noise(SIDE, SIDE, Images.type(type), 0));
+        component.setFastFormat(fastFormat);
+        target = new BufferedImage(SIDE, SIDE, BufferedImage.TYPE_INT_RGB);
+    }
+}
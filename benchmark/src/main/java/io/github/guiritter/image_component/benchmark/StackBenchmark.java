@@ -0,0 +1,107 @@
+package io.github.guiritter.image_component.benchmark;
+
+import io.github.guiritter.image_component.ImageComponentMultiple;
+import io.github.guiritter.image_component.StackCompositor;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Paints and flattens stacks of translucent layers of increasing depth,
+ * optionally with 90% of the layers hidden below an opaque one.
+ * Paints are clipped to the stack, as Swing does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx2g"})
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class StackBenchmark {
+
+    private static final int SIDE = 512;
+
+    private ImageComponentMultiple cached;
+
+    private StackCompositor compositor;
+
+    private ImageComponentMultiple direct;
+
+    @Param({"false", "true"})
+    public boolean occluded;
+
+    @Param({"1", "4", "16", "64", "256"})
+    public int layers;
+
+    private BufferedImage target;
+
+    /**
+     * Flattens the stack with the parallel compositor.
+     */
+    @Benchmark
+    public void compositor() {
+        compositor.composite(direct.layers, target);
+    }
+
+    /**
+     * Repaints a cached stack that didn't change.
+     */
+    @Benchmark
+    public void paintCached() {
+        Graphics2D g = target.createGraphics();
+        g.clipRect(0, 0, SIDE, SIDE);
+        cached.paint(g);
+        g.dispose();
+    }
+
+    /**
+     * Repaints a stack by drawing every layer.
+     */
+    @Benchmark
+    public void paintDirect() {
+        Graphics2D g = target.createGraphics();
+        g.clipRect(0, 0, SIDE, SIDE);
+        direct.paint(g);
+        g.dispose();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        direct = new ImageComponentMultiple();
+        int opaque = occluded ? (layers - Math.max(1, layers / 10)) : -1;
+        for (int i = 0; i < layers; i++) {
+            direct.images.add(Images.noise(SIDE, SIDE, (i == opaque)
+             ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB_PRE,
+             i));
+        }
+        direct.update();
+        cached = new ImageComponentMultiple(direct.images);
+        cached.setCached(true);
+        compositor = new StackCompositor();
+        target = new BufferedImage(
+         SIDE, SIDE, BufferedImage.TYPE_INT_ARGB_PRE);
+        paintCached();
+    }
+
+    /**
+     * Signals a change to the stack and repaints it,
+     * which rebuilds the flattened stack.
+     */
+    @Benchmark
+    public void updateAndPaintCached() {
+        cached.update();
+        paintCached();
+    }
+}
@@ -0,0 +1,563 @@
+package io.github.guiritter.image_component;
+
+import java.awt.Composite;
+import java.awt.CompositeContext;
+import java.awt.RenderingHints;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Blends what is drawn with what is below it by a {@link BlendMode},
+ * with an opacity, the same way as {@link java.awt.AlphaComposite} does
+ * for source-over. Images whose pixels are packed in integers as RGB,
+ * ARGB or premultiplied ARGB are blended directly on their arrays,
+ * a row at a time, in loops dedicated to each mode; other pixel formats
+ * are converted one pixel at a time.
+ * @author Guilherme Alan Ritter
+ */
+public final class BlendComposite implements Composite {
+
+    private static final int FORMAT_ARGB = 1;
+
+    private static final int FORMAT_ARGB_PRE = 2;
+
+    private static final int FORMAT_OTHER = 0;
+
+    private static final int FORMAT_RGB = 3;
+
+    private final BlendMode mode;
+
+    private final float opacity;
+
+    /**
+     * Blends the rasters of one drawing operation.
+     */
+    private static final class Context implements CompositeContext {
+
+        private final int destinationFormat;
+
+        private final ColorModel destinationModel;
+
+        private final int extraAlpha;
+
+        private final BlendMode mode;
+
+        /**
+         * Premultiplied destination pixels of a row,
+         * when they can't be blended in place.
+         */
+        private int row[] = new int[0];
+
+        /**
+         * Source pixels of a row, when they must be converted.
+         */
+        private int sourceRow[] = new int[0];
+
+        private final int sourceFormat;
+
+        private final ColorModel sourceModel;
+
+        @Override
+        public void compose(Raster src, Raster dstIn, WritableRaster dstOut) {
+            int width = Math.min(src.getWidth(),
+             Math.min(dstIn.getWidth(), dstOut.getWidth()));
+            int height = Math.min(src.getHeight(),
+             Math.min(dstIn.getHeight(), dstOut.getHeight()));
+            if ((width <= 0) || (height <= 0)) {
+                return;
+            }
+            int sourceFormat = isPacked(src) ? this.sourceFormat : FORMAT_OTHER;
+            int destinationFormat = (isPacked(dstIn) && isPacked(dstOut))
+             ? this.destinationFormat : FORMAT_OTHER;
+            boolean inPlace = (destinationFormat == FORMAT_ARGB_PRE)
+             && (dstIn.getDataBuffer() == dstOut.getDataBuffer())
+             && (index(dstIn, 0) == index(dstOut, 0));
+            if (row.length < width) {
+                row = new int[width];
+                sourceRow = new int[width];
+            }
+            int sourceData[] = (sourceFormat == FORMAT_OTHER)
+             ? sourceRow : getData(src);
+            int destinationData[] = inPlace ? getData(dstOut) : row;
+            // the source and the destination may differ in transfer type
+            Object sourceElement = null;
+            Object destinationElement = null;
+            for (int y = 0; y < height; y++) {
+                int sourceIndex = 0;
+                if (sourceFormat == FORMAT_OTHER) {
+                    for (int x = 0; x < width; x++) {
+                        sourceElement = src.getDataElements(src.getMinX() + x,
+                         src.getMinY() + y, sourceElement);
+                        sourceRow[x] = sourceModel.getRGB(sourceElement);
+                    }
+                } else {
+                    sourceIndex = index(src, y);
+                }
+                int destinationIndex = 0;
+                if (inPlace) {
+                    destinationIndex = index(dstOut, y);
+                } else {
+                    destinationElement = readRow(dstIn, destinationFormat,
+                     y, width, destinationElement);
+                }
+                blendRow(mode, sourceData, sourceIndex,
+                 sourceFormat == FORMAT_RGB, sourceFormat == FORMAT_ARGB_PRE,
+                 extraAlpha, destinationData, destinationIndex, width);
+                if (!inPlace) {
+                    destinationElement = writeRow(dstOut, destinationFormat,
+                     y, width, destinationElement);
+                }
+            }
+        }
+
+        @Override
+        public void dispose() {}
+
+        /**
+         * Reads a row of the destination into {@link #row}, premultiplied.
+         */
+        private Object readRow(Raster raster, int format, int y, int width,
+         Object element) {
+            if (format == FORMAT_OTHER) {
+                for (int x = 0; x < width; x++) {
+                    element = raster.getDataElements(
+                     raster.getMinX() + x, raster.getMinY() + y, element);
+                    row[x] = toPremultiplied(destinationModel.getRGB(element),
+                     false, false, 0xFF);
+                }
+                return element;
+            }
+            int data[] = getData(raster);
+            int index = index(raster, y);
+            for (int x = 0; x < width; x++) {
+                row[x] = toPremultiplied(data[index + x],
+                 format == FORMAT_RGB,
+                 format == FORMAT_ARGB_PRE, 0xFF);
+            }
+            return element;
+        }
+
+        /**
+         * Writes {@link #row} to a row of the destination.
+         */
+        private Object writeRow(WritableRaster raster, int format, int y,
+         int width, Object element) {
+            if (format == FORMAT_OTHER) {
+                for (int x = 0; x < width; x++) {
+                    element = destinationModel.getDataElements(
+                     toStraight(row[x]), element);
+                    raster.setDataElements(
+                     raster.getMinX() + x, raster.getMinY() + y, element);
+                }
+                return element;
+            }
+            int data[] = getData(raster);
+            int index = index(raster, y);
+            for (int x = 0; x < width; x++) {
+                switch (format) {
+                    case FORMAT_ARGB:
+                        data[index + x] = toStraight(row[x]);
+                        break;
+                    case FORMAT_RGB:
+                        data[index + x] = row[x] & 0xFFFFFF;
+                        break;
+                    default:
+                        data[index + x] = row[x];
+                }
+            }
+            return element;
+        }
+
+        Context(BlendMode mode, float opacity,
+         ColorModel sourceModel, ColorModel destinationModel) {
+            this.mode = mode;
+            this.sourceModel = sourceModel;
+            this.destinationModel = destinationModel;
+            extraAlpha = (int) ((opacity * 255.0) + 0.5);
+            sourceFormat = getFormat(sourceModel);
+            destinationFormat = getFormat(destinationModel);
+        }
+    }
+
+    /**
+     * Blends a span of source pixels into premultiplied target pixels.
+     * Each mode has its own loop, so that the blend of each pixel
+     * is inlined without branching on the mode.
+     * @param mode how the pixels are blended
+     * @param source source pixels, packed as ARGB or RGB
+     * @param sourceIndex index of the first source pixel
+     * @param opaque whether the source pixels have no alpha
+     * @param premultiplied whether the source pixels are premultiplied
+     * @param extraAlpha opacity applied to the source, from 0 to 255
+     * @param target premultiplied ARGB target pixels
+     * @param targetIndex index of the first target pixel
+     * @param length how many pixels are blended
+     */
+    static void blendRow(BlendMode mode, int source[], int sourceIndex,
+     boolean opaque, boolean premultiplied, int extraAlpha,
+     int target[], int targetIndex, int length) {
+        int i;
+        int pixel;
+        switch (mode) {
+            case NORMAL:
+                for (i = 0; i < length; i++) {
+                    pixel = toPremultiplied(source[sourceIndex + i],
+                     opaque, premultiplied, extraAlpha);
+                    if (pixel != 0) {
+                        target[targetIndex + i]
+                         = normal(pixel, target[targetIndex + i]);
+                    }
+                }
+                break;
+            case MULTIPLY:
+                for (i = 0; i < length; i++) {
+                    pixel = toPremultiplied(source[sourceIndex + i],
+                     opaque, premultiplied, extraAlpha);
+                    if (pixel != 0) {
+                        target[targetIndex + i]
+                         = multiply(pixel, target[targetIndex + i]);
+                    }
+                }
+                break;
+            case SCREEN:
+                for (i = 0; i < length; i++) {
+                    pixel = toPremultiplied(source[sourceIndex + i],
+                     opaque, premultiplied, extraAlpha);
+                    if (pixel != 0) {
+                        target[targetIndex + i]
+                         = screen(pixel, target[targetIndex + i]);
+                    }
+                }
+                break;
+            case OVERLAY:
+                for (i = 0; i < length; i++) {
+                    pixel = toPremultiplied(source[sourceIndex + i],
+                     opaque, premultiplied, extraAlpha);
+                    if (pixel != 0) {
+                        target[targetIndex + i]
+                         = overlay(pixel, target[targetIndex + i]);
+                    }
+                }
+                break;
+            case DARKEN:
+                for (i = 0; i < length; i++) {
+                    pixel = toPremultiplied(source[sourceIndex + i],
+                     opaque, premultiplied, extraAlpha);
+                    if (pixel != 0) {
+                        target[targetIndex + i]
+                         = darken(pixel, target[targetIndex + i]);
+                    }
+                }
+                break;
+            case LIGHTEN:
+                for (i = 0; i < length; i++) {
+                    pixel = toPremultiplied(source[sourceIndex + i],
+                     opaque, premultiplied, extraAlpha);
+                    if (pixel != 0) {
+                        target[targetIndex + i]
+                         = lighten(pixel, target[targetIndex + i]);
+                    }
+                }
+                break;
+            case DIFFERENCE:
+                for (i = 0; i < length; i++) {
+                    pixel = toPremultiplied(source[sourceIndex + i],
+                     opaque, premultiplied, extraAlpha);
+                    if (pixel != 0) {
+                        target[targetIndex + i]
+                         = difference(pixel, target[targetIndex + i]);
+                    }
+                }
+                break;
+            case ADD:
+                for (i = 0; i < length; i++) {
+                    pixel = toPremultiplied(source[sourceIndex + i],
+                     opaque, premultiplied, extraAlpha);
+                    if (pixel != 0) {
+                        target[targetIndex + i]
+                         = add(pixel, target[targetIndex + i]);
+                    }
+                }
+                break;
+            default:
+                throw new AssertionError(mode);
+        }
+    }
+
+    @Override
+    public CompositeContext createContext(ColorModel srcColorModel,
+     ColorModel dstColorModel, RenderingHints hints) {
+        return new Context(mode, opacity, srcColorModel, dstColorModel);
+    }
+
+    /**
+     * @return the format of the pixels of a color model, if they are
+     * packed in integers in one of the formats blended directly
+     */
+    private static int getFormat(ColorModel model) {
+        if ((!(model instanceof DirectColorModel))
+         || (model.getTransferType() != DataBuffer.TYPE_INT)
+         || (!model.getColorSpace().isCS_sRGB())) {
+            return FORMAT_OTHER;
+        }
+        DirectColorModel direct = (DirectColorModel) model;
+        if ((direct.getRedMask() != 0xFF0000)
+         || (direct.getGreenMask() != 0xFF00)
+         || (direct.getBlueMask() != 0xFF)) {
+            return FORMAT_OTHER;
+        }
+        if (direct.getAlphaMask() == 0) {
+            return FORMAT_RGB;
+        }
+        if (direct.getAlphaMask() != 0xFF000000) {
+            return FORMAT_OTHER;
+        }
+        return direct.isAlphaPremultiplied() ? FORMAT_ARGB_PRE : FORMAT_ARGB;
+    }
+
+    private static int[] getData(Raster raster) {
+        return ((DataBufferInt) raster.getDataBuffer()).getData();
+    }
+
+    /**
+     * Returns a composite that blends by a mode, fully opaque.
+     * @param mode how colors are blended
+     * @return the composite
+     */
+    public static BlendComposite getInstance(BlendMode mode) {
+        return new BlendComposite(mode, 1f);
+    }
+
+    /**
+     * Returns a composite that blends by a mode, with an opacity.
+     * @param mode how colors are blended
+     * @param opacity from 0 (transparent) to 1 (as is)
+     * @return the composite
+     */
+    public static BlendComposite getInstance(BlendMode mode, float opacity) {
+        return new BlendComposite(mode, opacity);
+    }
+
+    /**
+     * @return how colors are blended
+     */
+    public BlendMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the opacity applied to what is drawn
+     */
+    public float getOpacity() {
+        return opacity;
+    }
+
+    /**
+     * @return index in the data array of the first pixel of a row
+     * of a raster whose pixels are packed in integers
+     */
+    private static int index(Raster raster, int y) {
+        int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel())
+         .getScanlineStride();
+        return raster.getDataBuffer().getOffset()
+         + ((raster.getMinY() + y - raster.getSampleModelTranslateY())
+          * stride)
+         + raster.getMinX() - raster.getSampleModelTranslateX();
+    }
+
+    /**
+     * @return whether the pixels of a raster are packed in integers,
+     * one pixel per element
+     */
+    private static boolean isPacked(Raster raster) {
+        return (raster.getDataBuffer() instanceof DataBufferInt)
+         && (raster.getSampleModel() instanceof SinglePixelPackedSampleModel);
+    }
+
+    private static int mul(int a, int b) {
+        return StackCompositor.MUL8[(a << 8) | b] & 0xFF;
+    }
+
+    /**
+     * Packs the channels of a premultiplied pixel,
+     * clamping the colors between zero and the alpha.
+     */
+    private static int pack(int alpha, int red, int green, int blue) {
+        red   = Math.max(0, Math.min(alpha, red  ));
+        green = Math.max(0, Math.min(alpha, green));
+        blue  = Math.max(0, Math.min(alpha, blue ));
+        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+
+    /**
+     * @return the alpha of a premultiplied pixel blended over another one
+     */
+    private static int over(int sourceAlpha, int targetAlpha) {
+        return sourceAlpha + targetAlpha - mul(sourceAlpha, targetAlpha);
+    }
+
+    private static int add(int s, int t) {
+        return pack(Math.min(0xFF, (s >>> 24) + (t >>> 24)),
+         ((s >> 16) & 0xFF) + ((t >> 16) & 0xFF),
+         ((s >>  8) & 0xFF) + ((t >>  8) & 0xFF),
+         ( s        & 0xFF) + ( t        & 0xFF));
+    }
+
+    private static int darken(int s, int t) {
+        int sa = s >>> 24;
+        int ta = t >>> 24;
+        return pack(over(sa, ta),
+         darken((s >> 16) & 0xFF, (t >> 16) & 0xFF, sa, ta),
+         darken((s >>  8) & 0xFF, (t >>  8) & 0xFF, sa, ta),
+         darken( s        & 0xFF,  t        & 0xFF, sa, ta));
+    }
+
+    private static int darken(int s, int t, int sa, int ta) {
+        return s + t - Math.max(mul(s, ta), mul(t, sa));
+    }
+
+    private static int difference(int s, int t) {
+        int sa = s >>> 24;
+        int ta = t >>> 24;
+        return pack(over(sa, ta),
+         difference((s >> 16) & 0xFF, (t >> 16) & 0xFF, sa, ta),
+         difference((s >>  8) & 0xFF, (t >>  8) & 0xFF, sa, ta),
+         difference( s        & 0xFF,  t        & 0xFF, sa, ta));
+    }
+
+    private static int difference(int s, int t, int sa, int ta) {
+        return s + t - (2 * Math.min(mul(s, ta), mul(t, sa)));
+    }
+
+    private static int lighten(int s, int t) {
+        int sa = s >>> 24;
+        int ta = t >>> 24;
+        return pack(over(sa, ta),
+         lighten((s >> 16) & 0xFF, (t >> 16) & 0xFF, sa, ta),
+         lighten((s >>  8) & 0xFF, (t >>  8) & 0xFF, sa, ta),
+         lighten( s        & 0xFF,  t        & 0xFF, sa, ta));
+    }
+
+    private static int lighten(int s, int t, int sa, int ta) {
+        return s + t - Math.min(mul(s, ta), mul(t, sa));
+    }
+
+    private static int multiply(int s, int t) {
+        int sa = s >>> 24;
+        int ta = t >>> 24;
+        return pack(over(sa, ta),
+         multiply((s >> 16) & 0xFF, (t >> 16) & 0xFF, sa, ta),
+         multiply((s >>  8) & 0xFF, (t >>  8) & 0xFF, sa, ta),
+         multiply( s        & 0xFF,  t        & 0xFF, sa, ta));
+    }
+
+    private static int multiply(int s, int t, int sa, int ta) {
+        return mul(s, 0xFF - ta) + mul(t, 0xFF - sa) + mul(s, t);
+    }
+
+    private static int normal(int s, int t) {
+        int inverse = 0xFF - (s >>> 24);
+        return pack(over(s >>> 24, t >>> 24),
+         ((s >> 16) & 0xFF) + mul((t >> 16) & 0xFF, inverse),
+         ((s >>  8) & 0xFF) + mul((t >>  8) & 0xFF, inverse),
+         ( s        & 0xFF) + mul( t        & 0xFF, inverse));
+    }
+
+    private static int overlay(int s, int t) {
+        int sa = s >>> 24;
+        int ta = t >>> 24;
+        return pack(over(sa, ta),
+         overlay((s >> 16) & 0xFF, (t >> 16) & 0xFF, sa, ta),
+         overlay((s >>  8) & 0xFF, (t >>  8) & 0xFF, sa, ta),
+         overlay( s        & 0xFF,  t        & 0xFF, sa, ta));
+    }
+
+    private static int overlay(int s, int t, int sa, int ta) {
+        return mul(s, 0xFF - ta) + mul(t, 0xFF - sa) + (((2 * t) <= ta)
+         ? (2 * mul(s, t))
+         : (mul(sa, ta) - (2 * mul(sa - s, ta - t))));
+    }
+
+    private static int screen(int s, int t) {
+        return pack(over(s >>> 24, t >>> 24),
+         screen((s >> 16) & 0xFF, (t >> 16) & 0xFF, 0, 0),
+         screen((s >>  8) & 0xFF, (t >>  8) & 0xFF, 0, 0),
+         screen( s        & 0xFF,  t        & 0xFF, 0, 0));
+    }
+
+    /**
+     * Screening doesn't depend on the alphas,
+     * which are only taken for symmetry with the other modes.
+     */
+    private static int screen(int s, int t, int sa, int ta) {
+        return s + t - mul(s, t);
+    }
+
+    /**
+     * Converts a pixel to premultiplied ARGB, applying an opacity.
+     * @param pixel packed as ARGB or RGB
+     * @param opaque whether the pixel has no alpha
+     * @param premultiplied whether the pixel is premultiplied
+     * @param extraAlpha opacity, from 0 to 255
+     * @return the premultiplied pixel
+     */
+    static int toPremultiplied(int pixel, boolean opaque,
+     boolean premultiplied, int extraAlpha) {
+        int alpha = opaque ? 0xFF : (pixel >>> 24);
+        int factor;
+        if (premultiplied) {
+            if (extraAlpha == 0xFF) {
+                return pixel;
+            }
+            alpha = mul(extraAlpha, alpha);
+            factor = extraAlpha;
+        } else {
+            alpha = mul(extraAlpha, alpha);
+            factor = alpha;
+        }
+        if (alpha == 0) {
+            return 0;
+        }
+        if (factor == 0xFF) {
+            return (alpha << 24) | (pixel & 0xFFFFFF);
+        }
+        return (alpha << 24)
+         | (mul(factor, (pixel >> 16) & 0xFF) << 16)
+         | (mul(factor, (pixel >>  8) & 0xFF) <<  8)
+         |  mul(factor,  pixel        & 0xFF);
+    }
+
+    /**
+     * Converts a premultiplied ARGB pixel to straight ARGB.
+     */
+    static int toStraight(int pixel) {
+        int alpha = pixel >>> 24;
+        if ((alpha == 0xFF) || (alpha == 0)) {
+            return (alpha == 0) ? 0 : pixel;
+        }
+        int half = alpha / 2;
+        return (alpha << 24)
+         | (Math.min(0xFF, ((((pixel >> 16) & 0xFF) * 0xFF) + half) / alpha)
+          << 16)
+         | (Math.min(0xFF, ((((pixel >>  8) & 0xFF) * 0xFF) + half) / alpha)
+          <<  8)
+         |  Math.min(0xFF, ((( pixel        & 0xFF) * 0xFF) + half) / alpha);
+    }
+
+    private BlendComposite(BlendMode mode, float opacity) {
+        if (mode == null) {
+            throw new NullPointerException("mode");
+        }
+        if (!((opacity >= 0f) && (opacity <= 1f))) {
+            throw new IllegalArgumentException(
+             "Opacity must be between 0 and 1: " + opacity);
+        }
+        this.mode = mode;
+        this.opacity = opacity;
+    }
+}
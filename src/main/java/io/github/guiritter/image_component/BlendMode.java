@@ -0,0 +1,53 @@
+package io.github.guiritter.image_component;
+
+/**
+ * How the colors of a layer are combined with the colors below it.
+ * Except for {@link #ADD}, the modes follow the separable blend modes of
+ * the W3C compositing specification: where both colors are present they
+ * are combined by the mode, and elsewhere each shows as it is.
+ * @author Guilherme Alan Ritter
+ */
+public enum BlendMode {
+
+    /**
+     * The layer is painted over what is below it.
+     */
+    NORMAL,
+
+    /**
+     * The colors are multiplied, which darkens them.
+     */
+    MULTIPLY,
+
+    /**
+     * The complements of the colors are multiplied,
+     * which lightens them.
+     */
+    SCREEN,
+
+    /**
+     * Dark colors below the layer are multiplied
+     * and light colors are screened, which increases contrast.
+     */
+    OVERLAY,
+
+    /**
+     * The darkest of the colors is kept.
+     */
+    DARKEN,
+
+    /**
+     * The lightest of the colors is kept.
+     */
+    LIGHTEN,
+
+    /**
+     * The darkest color is subtracted from the lightest.
+     */
+    DIFFERENCE,
+
+    /**
+     * The colors and the alphas are added, saturating at white and opaque.
+     */
+    ADD
+}
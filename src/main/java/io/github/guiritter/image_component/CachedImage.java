@@ -0,0 +1,108 @@
+package io.github.guiritter.image_component;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A reference to an image held by an {@link ImageCache}. The image may be
+ * evicted at any time while the reference is held, and is read again from
+ * its source when needed, so holders should not keep the image itself.
+ * Every reference must be {@link #release() released} once it's no longer
+ * needed. This class is thread safe.
+ * @author Guilherme Alan Ritter
+ */
+public final class CachedImage {
+
+    /**
+     * Amount of bytes held by {@link #image}.
+     */
+    long bytes = 0;
+
+    public final ImageCache cache;
+
+    /**
+     * Height of the image when it was last read, or zero if it wasn't yet.
+     */
+    int height = 0;
+
+    /**
+     * The image, or null if it's not in memory.
+     */
+    BufferedImage image = null;
+
+    /**
+     * The image being read, or null if it isn't being read.
+     */
+    CompletableFuture<BufferedImage> pending = null;
+
+    /**
+     * How many times this was acquired and not yet released.
+     */
+    int references = 0;
+
+    public final ImageSource source;
+
+    /**
+     * Width of the image when it was last read, or zero if it wasn't yet.
+     */
+    int width = 0;
+
+    /**
+     * Returns the image, reading it from its source on this thread
+     * if it's not in memory.
+     * @return the image
+     * @throws IOException if the image could not be read
+     */
+    public BufferedImage get() throws IOException {
+        return cache.get(this);
+    }
+
+    /**
+     * @return the height of the image, or zero if it was never read
+     */
+    public int getHeight() {
+        synchronized (cache) {
+            return height;
+        }
+    }
+
+    /**
+     * Returns the image only if it's in memory, without reading it.
+     * @return the image, or null if it's not in memory
+     */
+    public BufferedImage getIfLoaded() {
+        return cache.getIfLoaded(this);
+    }
+
+    /**
+     * @return the width of the image, or zero if it was never read
+     */
+    public int getWidth() {
+        synchronized (cache) {
+            return width;
+        }
+    }
+
+    /**
+     * Reads the image in the background, if it's not in memory.
+     * @return completes with the image, on a background thread unless
+     * it's already in memory, or exceptionally if it could not be read
+     */
+    public CompletableFuture<BufferedImage> load() {
+        return cache.load(this);
+    }
+
+    /**
+     * Releases this reference. The image stays in the cache until
+     * it's evicted, in case it's acquired again.
+     */
+    public void release() {
+        cache.release(this);
+    }
+
+    CachedImage(ImageCache cache, ImageSource source) {
+        this.cache = cache;
+        this.source = source;
+    }
+}
@@ -0,0 +1,302 @@
+package io.github.guiritter.image_component;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * Index of which pixels of an image are not fully transparent, used to
+ * find the layers under a point without reading their pixels. The image is
+ * split in square tiles of 8 by 8 pixels, each marked as empty, full or
+ * mixed; mixed tiles keep one bit per pixel. Opaque images need no tiles
+ * at all. Doesn't hold on to the image, so it stays valid after the image
+ * is dropped. Built once for an image, and refreshed
+ * by region when its pixels change.
+ * This class is not synchronized.
+ * @author Guilherme Alan Ritter
+ */
+final class Coverage {
+
+    /**
+     * Tile with no pixels that are not fully transparent.
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * Tile with no fully transparent pixels.
+     */
+    private static final int FULL = -2;
+
+    /**
+     * Side of the tiles is {@code 1 << TILE_SHIFT}, so that the pixels
+     * of a tile fit the bits of a long.
+     */
+    private static final int TILE_SHIFT = 3;
+
+    /**
+     * Smallest region covering every tile that is not empty,
+     * in the image's coordinates.
+     */
+    private final Rectangle bounds = new Rectangle();
+
+    private final int height;
+
+    /**
+     * Which pixels of each mixed tile are not fully transparent,
+     * one bit per pixel, row by row from the lowest bit.
+     */
+    private long masks[];
+
+    /**
+     * How many entries of {@link #masks} are in use.
+     */
+    private int masksUsed = 0;
+
+    /**
+     * The state of each tile, row by row, either {@link #EMPTY},
+     * {@link #FULL} or the index of its mask for mixed tiles,
+     * or null if the image is opaque.
+     */
+    private final int tiles[];
+
+    private final int tilesHeight;
+
+    private final int tilesWidth;
+
+    private final int width;
+
+    /**
+     * @return the bit of a pixel in the mask of its tile
+     */
+    private static long bit(int x, int y) {
+        int last = (1 << TILE_SHIFT) - 1;
+        return 1L << (((y & last) << TILE_SHIFT) + (x & last));
+    }
+
+    /**
+     * Whether a pixel of the image is not fully transparent.
+     * @param x horizontal position in the image
+     * @param y vertical position in the image
+     * @return false if the pixel is fully transparent or outside of the image
+     */
+    boolean covers(int x, int y) {
+        if (!bounds.contains(x, y)) {
+            return false;
+        }
+        if (tiles == null) {
+            return true;
+        }
+        int tile = tiles[((y >> TILE_SHIFT) * tilesWidth) + (x >> TILE_SHIFT)];
+        if (tile < 0) {
+            return tile == FULL;
+        }
+        return (masks[tile] & bit(x, y)) != 0;
+    }
+
+    /**
+     * @return the smallest region covering every pixel that is not
+     * fully transparent, in the image's coordinates, rounded out to tiles
+     */
+    Rectangle getBounds() {
+        return new Rectangle(bounds);
+    }
+
+    /**
+     * Whether any pixel of the image inside an area
+     * is not fully transparent.
+     * @param area the area, in the image's coordinates
+     * @return false if every pixel inside the area is fully transparent
+     */
+    boolean intersects(Rectangle area) {
+        Rectangle clipped = area.intersection(bounds);
+        if (clipped.isEmpty()) {
+            return false;
+        }
+        if (tiles == null) {
+            return true;
+        }
+        int left = clipped.x >> TILE_SHIFT;
+        int right = (clipped.x + clipped.width - 1) >> TILE_SHIFT;
+        int top = clipped.y >> TILE_SHIFT;
+        int bottom = (clipped.y + clipped.height - 1) >> TILE_SHIFT;
+        int side = 1 << TILE_SHIFT;
+        Rectangle tile = new Rectangle(0, 0, side, side);
+        for (int ty = top; ty <= bottom; ty++) {
+            for (int tx = left; tx <= right; tx++) {
+                int state = tiles[(ty * tilesWidth) + tx];
+                if (state == FULL) {
+                    return true;
+                }
+                if (state == EMPTY) {
+                    continue;
+                }
+                tile.setLocation(tx << TILE_SHIFT, ty << TILE_SHIFT);
+                Rectangle inside = clipped.intersection(tile);
+                long mask = 0;
+                for (int y = inside.y; y < inside.y + inside.height; y++) {
+                    for (int x = inside.x; x < inside.x + inside.width; x++) {
+                        mask |= bit(x, y);
+                    }
+                }
+                if ((masks[state] & mask) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Marks the tiles of some rows of tiles by scanning their pixels.
+     * @param image the image being indexed
+     * @param top first row of tiles
+     * @param bottom last row of tiles, inclusive
+     * @param left first column of tiles
+     * @param right last column of tiles, inclusive
+     */
+    private void mark(BufferedImage image,
+     int top, int bottom, int left, int right) {
+        WritableRaster alpha = image.getAlphaRaster();
+        boolean packed = (image.getType() == BufferedImage.TYPE_INT_ARGB)
+         || (image.getType() == BufferedImage.TYPE_INT_ARGB_PRE);
+        int x0 = left << TILE_SHIFT;
+        int x1 = Math.min(width, (right + 1) << TILE_SHIFT);
+        int row[] = new int[x1 - x0];
+        long covered[] = new long[right - left + 1];
+        boolean all[] = new boolean[right - left + 1];
+        for (int ty = top; ty <= bottom; ty++) {
+            Arrays.fill(covered, 0);
+            Arrays.fill(all, true);
+            int y1 = Math.min(height, (ty + 1) << TILE_SHIFT);
+            for (int y = ty << TILE_SHIFT; y < y1; y++) {
+                readAlpha(image, alpha, packed, x0, y, row);
+                for (int i = 0; i < row.length; i++) {
+                    int tx = i >> TILE_SHIFT;
+                    if (row[i] == 0) {
+                        all[tx] = false;
+                    } else {
+                        covered[tx] |= bit(i, y);
+                    }
+                }
+            }
+            for (int tx = left; tx <= right; tx++) {
+                int index = (ty * tilesWidth) + tx;
+                if (covered[tx - left] == 0) {
+                    tiles[index] = EMPTY;
+                } else if (all[tx - left]) {
+                    tiles[index] = FULL;
+                } else {
+                    if (tiles[index] < 0) {
+                        // slots of tiles that stopped being mixed are only
+                        // reclaimed when the coverage is built again
+                        if (masksUsed == masks.length) {
+                            masks = Arrays.copyOf(masks,
+                             Math.max(16, masks.length * 2));
+                        }
+                        tiles[index] = masksUsed++;
+                    }
+                    masks[tiles[index]] = covered[tx - left];
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the alpha of a row of pixels, as zero only
+     * where they are fully transparent.
+     * @param alpha the alpha raster of the image, or null if it has none,
+     * such as indexed images with a transparent color
+     */
+    private static void readAlpha(BufferedImage image, WritableRaster alpha,
+     boolean packed, int x, int y, int row[]) {
+        if (packed) {
+            image.getRaster().getDataElements(x, y, row.length, 1, row);
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>>= 24;
+            }
+        } else if (alpha == null) {
+            image.getRGB(x, y, row.length, 1, row, 0, row.length);
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>>= 24;
+            }
+        } else {
+            alpha.getSamples(alpha.getMinX() + x, alpha.getMinY() + y,
+             row.length, 1, 0, row);
+        }
+    }
+
+    /**
+     * Scans again the pixels inside a region of the image,
+     * after they changed.
+     * @param image the image that was indexed, with its new pixels
+     * @param region the changed region, in the image's coordinates
+     */
+    void refresh(BufferedImage image, Rectangle region) {
+        if (tiles == null) {
+            return;
+        }
+        Rectangle clipped = region.intersection(
+         new Rectangle(0, 0, width, height));
+        if (clipped.isEmpty()) {
+            return;
+        }
+        mark(image, clipped.y >> TILE_SHIFT,
+         (clipped.y + clipped.height - 1) >> TILE_SHIFT,
+         clipped.x >> TILE_SHIFT,
+         (clipped.x + clipped.width - 1) >> TILE_SHIFT);
+        updateBounds();
+    }
+
+    /**
+     * Sets {@link #bounds} to cover every tile that is not empty.
+     */
+    private void updateBounds() {
+        int left = tilesWidth;
+        int right = -1;
+        int top = tilesHeight;
+        int bottom = -1;
+        for (int ty = 0; ty < tilesHeight; ty++) {
+            int index = ty * tilesWidth;
+            for (int tx = 0; tx < tilesWidth; tx++) {
+                if (tiles[index + tx] != EMPTY) {
+                    left = Math.min(left, tx);
+                    right = Math.max(right, tx);
+                    top = Math.min(top, ty);
+                    bottom = ty;
+                }
+            }
+        }
+        if (right < 0) {
+            bounds.setBounds(0, 0, 0, 0);
+            return;
+        }
+        int x = left << TILE_SHIFT;
+        int y = top << TILE_SHIFT;
+        bounds.setBounds(x, y,
+         Math.min(width, (right + 1) << TILE_SHIFT) - x,
+         Math.min(height, (bottom + 1) << TILE_SHIFT) - y);
+    }
+
+    /**
+     * Scans every pixel of an image.
+     * @param image the image to be indexed
+     */
+    Coverage(BufferedImage image) {
+        width = image.getWidth();
+        height = image.getHeight();
+        tilesWidth = (width + (1 << TILE_SHIFT) - 1) >> TILE_SHIFT;
+        tilesHeight = (height + (1 << TILE_SHIFT) - 1) >> TILE_SHIFT;
+        if ((!image.getColorModel().hasAlpha())
+         || (width == 0) || (height == 0)) {
+            tiles = null;
+            bounds.setBounds(0, 0, width, height);
+            return;
+        }
+        tiles = new int[tilesWidth * tilesHeight];
+        Arrays.fill(tiles, EMPTY);
+        masks = new long[16];
+        mark(image, 0, tilesHeight - 1, 0, tilesWidth - 1);
+        updateBounds();
+    }
+}
@@ -0,0 +1,371 @@
+package io.github.guiritter.image_component;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+/**
+ * Plays a {@link FrameSequence} through a {@link FrameStream}, to be shown
+ * by an {@link ImageComponent#setFrameStream(FrameStream) ImageComponent}.
+ * A background thread decodes frames ahead into a bounded ring of recycled
+ * images, limited by a number of frames and a number of bytes, while
+ * another one publishes each frame when its time comes, by a clock
+ * independent of how long frames take to decode or paint. Frames whose time
+ * has already passed are skipped, before being decoded if possible,
+ * and frames replaced before being painted are dropped by the stream,
+ * so playback keeps its pace when decoding or painting fall behind.
+ * Seeking only decodes from the sought frame on, or, for formats whose
+ * frames build on the ones before, the frames up to it, without keeping
+ * them. Usage example:<blockquote><pre> FramePlayer player = new FramePlayer(
+ *  FrameSequence.of(new File("path/to/animation.gif")), 16, 64 << 20);
+ * component.setFrameStream(player.getStream());
+ * player.play();</pre></blockquote>
+ * This class is thread safe.
+ * @author Guilherme Alan Ritter
+ */
+public final class FramePlayer implements AutoCloseable {
+
+    /**
+     * A decoded frame waiting for its time.
+     */
+    private static final class Frame {
+
+        final BufferedImage image;
+
+        final int index;
+
+        /**
+         * When the frame is shown, in milliseconds of playback.
+         */
+        final long time;
+
+        Frame(BufferedImage image, int index, long time) {
+            this.image = image;
+            this.index = index;
+            this.time = time;
+        }
+    }
+
+    /**
+     * Decoded frames waiting for their time, in order.
+     */
+    private final ArrayDeque<Frame> ahead = new ArrayDeque<>();
+
+    /**
+     * When the clock last started or was set, from {@link System#nanoTime()}.
+     */
+    private long clockStart = System.nanoTime();
+
+    /**
+     * Milliseconds of playback at {@link #clockStart}.
+     */
+    private long clockTime = 0;
+
+    private boolean closed = false;
+
+    /**
+     * Index of the next frame to be decoded,
+     * or the frame count if the last one was decoded.
+     */
+    private int decodeIndex = 0;
+
+    /**
+     * Milliseconds of playback when the pass through the sequence
+     * being decoded started, which grows each time it loops.
+     */
+    private long decodeOffset = 0;
+
+    private final Thread decoder;
+
+    /**
+     * Why decoding stopped, or null if it didn't.
+     */
+    private IOException failure = null;
+
+    /**
+     * Incremented when seeking, so that frames decoded before are dropped.
+     */
+    private int generation = 0;
+
+    private boolean looping = true;
+
+    private boolean playing = false;
+
+    private final Thread scheduler;
+
+    private final FrameSequence sequence;
+
+    /**
+     * Index of the last published frame, or -1 if none was published.
+     */
+    private int shownIndex = -1;
+
+    private long skippedCount = 0;
+
+    /**
+     * Milliseconds from the start of the sequence to the start of each
+     * frame, followed by the duration of the whole sequence.
+     */
+    private final long starts[];
+
+    private final FrameStream stream;
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        decoder.interrupt();
+        scheduler.interrupt();
+    }
+
+    /**
+     * Decodes frames ahead while there's room in the ring.
+     */
+    private void decode() {
+        try {
+            while (true) {
+                BufferedImage image = stream.acquire();
+                int index;
+                int frameGeneration;
+                long time;
+                synchronized (this) {
+                    while ((!closed) && (decodeIndex == starts.length - 1)) {
+                        wait();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    // frames whose time is over aren't worth decoding
+                    long now = getTime();
+                    while ((decodeIndex < starts.length - 2)
+                     && ((decodeOffset + starts[decodeIndex + 1]) <= now)) {
+                        decodeIndex++;
+                        skippedCount++;
+                    }
+                    index = decodeIndex;
+                    frameGeneration = generation;
+                    time = decodeOffset + starts[index];
+                    decodeIndex++;
+                    if ((decodeIndex == starts.length - 1) && looping) {
+                        decodeIndex = 0;
+                        decodeOffset += starts[starts.length - 1];
+                    }
+                }
+                BufferedImage frame = sequence.read(index);
+                Graphics2D g = image.createGraphics();
+                g.setComposite(AlphaComposite.Src);
+                g.drawImage(frame, 0, 0, null);
+                g.dispose();
+                synchronized (this) {
+                    if (frameGeneration == generation) {
+                        ahead.add(new Frame(image, index, time));
+                        notifyAll();
+                        continue;
+                    }
+                }
+                stream.recycle(image);
+            }
+        } catch (InterruptedException ex) {
+            // closed
+        } catch (IOException ex) {
+            synchronized (this) {
+                failure = ex;
+            }
+        }
+    }
+
+    /**
+     * @return why decoding stopped, or null if it didn't
+     */
+    public synchronized IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return index of the frame shown last, or -1 if none was shown yet
+     */
+    public synchronized int getFrameIndex() {
+        return shownIndex;
+    }
+
+    public FrameSequence getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return how many frames were skipped because their time had passed,
+     * not counting frames dropped by the stream
+     */
+    public synchronized long getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * @return the stream the frames are published to
+     */
+    public FrameStream getStream() {
+        return stream;
+    }
+
+    /**
+     * @return milliseconds of playback, growing past the duration
+     * of the sequence while looping
+     */
+    private long getTime() {
+        return playing
+         ? (clockTime + ((System.nanoTime() - clockStart) / 1000000))
+         : clockTime;
+    }
+
+    /**
+     * @return whether the sequence starts over after its last frame
+     */
+    public synchronized boolean isLooping() {
+        return looping;
+    }
+
+    /**
+     * @return whether the clock is running
+     */
+    public synchronized boolean isPlaying() {
+        return playing;
+    }
+
+    /**
+     * Stops the clock, keeping the current frame shown.
+     */
+    public synchronized void pause() {
+        if (playing) {
+            clockTime = getTime();
+            playing = false;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Starts the clock from where it stopped.
+     */
+    public synchronized void play() {
+        if (!playing) {
+            clockStart = System.nanoTime();
+            playing = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Publishes each decoded frame when its time comes.
+     */
+    private void schedule() {
+        try {
+            while (true) {
+                Frame shown;
+                synchronized (this) {
+                    while (true) {
+                        if (closed) {
+                            return;
+                        }
+                        Frame head = ahead.peek();
+                        if (head == null) {
+                            wait();
+                            continue;
+                        }
+                        long delay = head.time - getTime();
+                        if (delay <= 0) {
+                            break;
+                        }
+                        if (playing) {
+                            wait(delay);
+                        } else {
+                            wait();
+                        }
+                    }
+                    shown = ahead.poll();
+                    long now = getTime();
+                    while ((!ahead.isEmpty()) && (ahead.peek().time <= now)) {
+                        stream.recycle(shown.image);
+                        skippedCount++;
+                        shown = ahead.poll();
+                    }
+                    shownIndex = shown.index;
+                }
+                stream.publish(shown.image);
+            }
+        } catch (InterruptedException ex) {
+            // closed
+        }
+    }
+
+    /**
+     * Shows a frame as soon as it's decoded, and plays on from it
+     * if playing. Frames decoded ahead are discarded.
+     * @param index position of the frame in the sequence
+     */
+    public synchronized void seek(int index) {
+        if ((index < 0) || (index >= starts.length - 1)) {
+            throw new IndexOutOfBoundsException(
+             "Index: " + index + ", Size: " + (starts.length - 1));
+        }
+        generation++;
+        for (Frame frame : ahead) {
+            stream.recycle(frame.image);
+        }
+        ahead.clear();
+        decodeIndex = index;
+        decodeOffset = 0;
+        clockTime = starts[index];
+        clockStart = System.nanoTime();
+        notifyAll();
+    }
+
+    /**
+     * Sets whether the sequence starts over after its last frame.
+     * Otherwise, the last frame stays shown.
+     * @param looping true to loop, false to stop at the last frame
+     */
+    public synchronized void setLooping(boolean looping) {
+        this.looping = looping;
+        if (looping && (decodeIndex == starts.length - 1)) {
+            decodeIndex = 0;
+            decodeOffset += starts[starts.length - 1];
+            notifyAll();
+        }
+    }
+
+    /**
+     * Creates a paused player, which decodes and shows the first frame.
+     * @param sequence the frames to be played
+     * @param aheadFrames how many frames may be decoded ahead, at least one
+     * @param aheadBytes how many bytes the frames decoded ahead may hold,
+     * though at least one frame is always decoded ahead
+     */
+    public FramePlayer(
+     FrameSequence sequence, int aheadFrames, long aheadBytes) {
+        if (aheadFrames < 1) {
+            throw new IllegalArgumentException(
+             "At least one frame must be decoded ahead.");
+        }
+        this.sequence = sequence;
+        int count = sequence.getFrameCount();
+        starts = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            starts[i + 1] = starts[i] + Math.max(1, sequence.getDelay(i));
+        }
+        long frameBytes = 4L * sequence.getWidth() * sequence.getHeight();
+        int ring = (int) Math.max(1,
+         Math.min(aheadFrames, aheadBytes / Math.max(1, frameBytes)));
+        // plus the frame shown and the frame being painted
+        stream = new FrameStream(sequence.getWidth(), sequence.getHeight(),
+         BufferedImage.TYPE_INT_ARGB_PRE, ring + 2);
+        decoder = new Thread(this::decode, "FramePlayer decoder");
+        decoder.setDaemon(true);
+        scheduler = new Thread(this::schedule, "FramePlayer scheduler");
+        scheduler.setDaemon(true);
+        decoder.start();
+        scheduler.start();
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.guiritter.image_component;
+
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Frames of an animation, such as an animated GIF or a sequence of images,
+ * each shown for its own delay. Frames can be read in any order, so that
+ * playback can seek without keeping the whole animation in memory,
+ * but reading them in order is the cheapest.
+ * Frames are read by one thread at a time.
+ * @author Guilherme Alan Ritter
+ */
+public interface FrameSequence extends Closeable {
+
+    /**
+     * Releases what is held to read frames, such as an open file.
+     * @throws IOException if it could not be released
+     */
+    @Override
+    default void close() throws IOException {}
+
+    /**
+     * @param index position of the frame
+     * @return for how long the frame is shown, in milliseconds
+     */
+    int getDelay(int index);
+
+    /**
+     * @return how many frames there are
+     */
+    int getFrameCount();
+
+    /**
+     * @return height of every frame
+     */
+    int getHeight();
+
+    /**
+     * @return width of every frame
+     */
+    int getWidth();
+
+    /**
+     * Opens an image file with one or more frames, such as an animated GIF,
+     * whose frames are composed the way their format describes.
+     * Frames without a delay of their own are shown for 100 milliseconds.
+     * @param file the image file
+     * @return the sequence, which keeps the file open until closed
+     * @throws IOException if the file could not be opened
+     */
+    static FrameSequence of(File file) throws IOException {
+        return new FrameSequences.ReaderSequence(file);
+    }
+
+    /**
+     * Creates a sequence of images of the same size, each read when needed.
+     * The first image is read to know the size.
+     * @param frames where each frame is read from
+     * @param delay for how long each frame is shown, in milliseconds
+     * @return the sequence
+     * @throws IOException if the first image could not be read
+     */
+    static FrameSequence of(List<? extends ImageSource> frames, int delay)
+     throws IOException {
+        return new FrameSequences.SourceSequence(frames, delay);
+    }
+
+    /**
+     * Reads a frame, as it's shown, already composed with the frames
+     * before it if the format needs so.
+     * @param index position of the frame
+     * @return the frame, which may be reused by the next read,
+     * so it must not be kept
+     * @throws IOException if the frame could not be read
+     */
+    BufferedImage read(int index) throws IOException;
+}
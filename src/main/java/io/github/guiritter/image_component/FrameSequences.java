@@ -0,0 +1,310 @@
+package io.github.guiritter.image_component;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * The sequences created by the static methods of {@link FrameSequence}.
+ * @author Guilherme Alan Ritter
+ */
+final class FrameSequences {
+
+    /**
+     * Delay of frames that don't have one, in milliseconds,
+     * the same as used by web browsers.
+     */
+    static final int DEFAULT_DELAY = 100;
+
+    private static final String GIF_IMAGE = "javax_imageio_gif_image_1.0";
+
+    private static final String GIF_STREAM = "javax_imageio_gif_stream_1.0";
+
+    /**
+     * Reads the frames of an image file through an {@link ImageReader},
+     * composing GIF frames over the frames before them.
+     */
+    static final class ReaderSequence implements FrameSequence {
+
+        /**
+         * Where each frame is drawn in the canvas.
+         */
+        private final Rectangle bounds[];
+
+        /**
+         * The composed frame, or null if the frames aren't composed.
+         */
+        private final BufferedImage canvas;
+
+        private final int delays[];
+
+        /**
+         * What is done with the area of each frame before the next one
+         * is drawn, as in the GIF metadata, or null if the frames aren't
+         * composed.
+         */
+        private final String disposals[];
+
+        private final int height;
+
+        private final ImageInputStream input;
+
+        /**
+         * Index of the next frame to be composed into {@link #canvas}.
+         */
+        private int next = 0;
+
+        /**
+         * The canvas as it was before the last frame was drawn,
+         * for frames disposed by restoring it.
+         */
+        private BufferedImage previous = null;
+
+        private final ImageReader reader;
+
+        private final int width;
+
+        @Override
+        public void close() throws IOException {
+            reader.dispose();
+            input.close();
+        }
+
+        /**
+         * Draws a frame into the canvas, after disposing of the one before.
+         */
+        private void compose(int index) throws IOException {
+            Graphics2D g = canvas.createGraphics();
+            if (index == 0) {
+                g.setComposite(AlphaComposite.Clear);
+                g.fillRect(0, 0, width, height);
+            } else if ("restoreToBackgroundColor".equals(
+             disposals[index - 1])) {
+                g.setComposite(AlphaComposite.Clear);
+                g.fill(bounds[index - 1]);
+            } else if ("restoreToPrevious".equals(disposals[index - 1])
+             && (previous != null)) {
+                g.setComposite(AlphaComposite.Src);
+                g.drawImage(previous, 0, 0, null);
+            }
+            if ("restoreToPrevious".equals(disposals[index])) {
+                if (previous == null) {
+                    previous = new BufferedImage(
+                     width, height, BufferedImage.TYPE_INT_ARGB);
+                }
+                ImageComponent.copyRegion(canvas, previous, null);
+            }
+            g.setComposite(AlphaComposite.SrcOver);
+            g.drawImage(reader.read(index),
+             bounds[index].x, bounds[index].y, null);
+            g.dispose();
+        }
+
+        @Override
+        public int getDelay(int index) {
+            return delays[index];
+        }
+
+        @Override
+        public int getFrameCount() {
+            return delays.length;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public BufferedImage read(int index) throws IOException {
+            if ((index < 0) || (index >= delays.length)) {
+                throw new IndexOutOfBoundsException(
+                 "Index: " + index + ", Size: " + delays.length);
+            }
+            if (canvas == null) {
+                return reader.read(index);
+            }
+            if (index < next) {
+                next = 0;
+            }
+            while (next <= index) {
+                compose(next);
+                next++;
+            }
+            return canvas;
+        }
+
+        ReaderSequence(File file) throws IOException {
+            input = ImageIO.createImageInputStream(file);
+            if (input == null) {
+                throw new IOException("Could not open " + file);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                input.close();
+                throw new IOException("No reader for " + file);
+            }
+            reader = readers.next();
+            try {
+                reader.setInput(input, false, false);
+                int count = reader.getNumImages(true);
+                if (count <= 0) {
+                    throw new IOException("No frames in " + file);
+                }
+                delays = new int[count];
+                bounds = new Rectangle[count];
+                IIOMetadata stream = reader.getStreamMetadata();
+                boolean gif = (stream != null) && GIF_STREAM.equals(
+                 stream.getNativeMetadataFormatName());
+                disposals = gif ? new String[count] : null;
+                Rectangle area = new Rectangle();
+                for (int i = 0; i < count; i++) {
+                    delays[i] = DEFAULT_DELAY;
+                    bounds[i] = new Rectangle(0, 0,
+                     reader.getWidth(i), reader.getHeight(i));
+                    if (gif) {
+                        readGifImage(reader.getImageMetadata(i)
+                         .getAsTree(GIF_IMAGE), i);
+                    }
+                    area.add(bounds[i]);
+                }
+                if (gif) {
+                    Node screen = find(stream.getAsTree(GIF_STREAM),
+                     "LogicalScreenDescriptor");
+                    if (screen != null) {
+                        area.add(new Rectangle(0, 0,
+                         getInt(screen, "logicalScreenWidth"),
+                         getInt(screen, "logicalScreenHeight")));
+                    }
+                }
+                width = area.x + area.width;
+                height = area.y + area.height;
+                canvas = gif ? new BufferedImage(
+                 width, height, BufferedImage.TYPE_INT_ARGB) : null;
+            } catch (IOException | RuntimeException ex) {
+                close();
+                throw ex;
+            }
+        }
+
+        /**
+         * Reads the position, delay and disposal of a GIF frame.
+         */
+        private void readGifImage(Node root, int index) {
+            Node descriptor = find(root, "ImageDescriptor");
+            if (descriptor != null) {
+                bounds[index].setLocation(
+                 getInt(descriptor, "imageLeftPosition"),
+                 getInt(descriptor, "imageTopPosition"));
+            }
+            Node control = find(root, "GraphicControlExtension");
+            if (control != null) {
+                disposals[index] = getString(control, "disposalMethod");
+                // delays too short to be meant are shown as by browsers
+                int delay = getInt(control, "delayTime") * 10;
+                if (delay > 10) {
+                    delays[index] = delay;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads each frame from its own source.
+     */
+    static final class SourceSequence implements FrameSequence {
+
+        private final int delay;
+
+        private final ArrayList<ImageSource> frames;
+
+        private final int height;
+
+        private final int width;
+
+        @Override
+        public int getDelay(int index) {
+            return delay;
+        }
+
+        @Override
+        public int getFrameCount() {
+            return frames.size();
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public BufferedImage read(int index) throws IOException {
+            return frames.get(index).read();
+        }
+
+        SourceSequence(List<? extends ImageSource> frames, int delay)
+         throws IOException {
+            if (frames.isEmpty()) {
+                throw new IllegalArgumentException("No frames.");
+            }
+            if (delay <= 0) {
+                throw new IllegalArgumentException(
+                 "Delay must be positive: " + delay);
+            }
+            this.frames = new ArrayList<>(frames);
+            this.delay = delay;
+            BufferedImage first = this.frames.get(0).read();
+            width = first.getWidth();
+            height = first.getHeight();
+        }
+    }
+
+    /**
+     * @return the first child of a node with a name, or null if none has it
+     */
+    private static Node find(Node parent, String name) {
+        for (Node child = parent.getFirstChild(); child != null;
+         child = child.getNextSibling()) {
+            if (name.equals(child.getNodeName())) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    private static int getInt(Node node, String attribute) {
+        String value = getString(node, attribute);
+        return (value == null) ? 0 : Integer.parseInt(value);
+    }
+
+    private static String getString(Node node, String attribute) {
+        NamedNodeMap attributes = node.getAttributes();
+        Node value = (attributes == null)
+         ? null : attributes.getNamedItem(attribute);
+        return (value == null) ? null : value.getNodeValue();
+    }
+
+    private FrameSequences() {}
+}
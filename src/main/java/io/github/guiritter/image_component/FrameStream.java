@@ -0,0 +1,209 @@
+package io.github.guiritter.image_component;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands frames from a producer thread to an {@link ImageComponent}
+ * through a fixed pool of recycled images, so that no image is allocated
+ * per frame. The producer {@link #acquire() acquires} a free image,
+ * draws the frame into it and {@link #publish(BufferedImage) publishes} it.
+ * The component always paints the newest published frame, and frames
+ * replaced by a newer one before being painted are dropped, so painting
+ * never falls behind the producer. Repaints are requested at most once
+ * per painted frame.
+ * This class is thread safe.
+ * @author Guilherme Alan Ritter
+ */
+public final class FrameStream {
+
+    private long droppedCount = 0;
+
+    private final ArrayDeque<BufferedImage> free = new ArrayDeque<>();
+
+    private final int height;
+
+    /**
+     * The newest published frame, or null if none was published yet.
+     */
+    private BufferedImage latest = null;
+
+    /**
+     * Whether {@link #latest} was painted at least once.
+     */
+    private boolean latestPainted = false;
+
+    /**
+     * Called when a frame is published and no repaint is pending.
+     */
+    private volatile Runnable listener = null;
+
+    private long paintedCount = 0;
+
+    /**
+     * The frame being painted, or null if none is.
+     */
+    private BufferedImage painting = null;
+
+    private long producedCount = 0;
+
+    /**
+     * Whether a repaint was requested and the frame wasn't painted yet.
+     */
+    private final AtomicBoolean repaintPending = new AtomicBoolean(false);
+
+    private final int width;
+
+    /**
+     * Returns a free image for the producer to draw the next frame into.
+     * Its previous contents are undefined. Blocks while all images are
+     * in use, which can only happen with fewer than three images.
+     * @return an image of the size and type of this stream
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized BufferedImage acquire() throws InterruptedException {
+        while (free.isEmpty()) {
+            wait();
+        }
+        return free.pop();
+    }
+
+    /**
+     * Takes the newest frame to be painted.
+     * Must be followed by {@link #endPaint()}.
+     * @return the newest frame, or null if none was published yet
+     */
+    synchronized BufferedImage beginPaint() {
+        repaintPending.set(false);
+        if (latest != null) {
+            if (!latestPainted) {
+                latestPainted = true;
+                paintedCount++;
+            }
+            painting = latest;
+        }
+        return latest;
+    }
+
+    /**
+     * Releases the frame taken by {@link #beginPaint()}.
+     */
+    synchronized void endPaint() {
+        if ((painting != null) && (painting != latest)) {
+            free.push(painting);
+            notifyAll();
+        }
+        painting = null;
+    }
+
+    /**
+     * @return how many published frames were replaced
+     * by a newer one before being painted
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * @return the height of the frames
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return how many published frames were painted at least once
+     */
+    public synchronized long getPaintedCount() {
+        return paintedCount;
+    }
+
+    /**
+     * @return how many frames were published
+     */
+    public synchronized long getProducedCount() {
+        return producedCount;
+    }
+
+    /**
+     * @return the width of the frames
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Makes a frame the newest one, to be painted next. The previous newest
+     * frame is recycled, and counted as dropped if it wasn't painted.
+     * @param frame an image returned by {@link #acquire()},
+     * which the producer must not touch anymore
+     */
+    public void publish(BufferedImage frame) {
+        synchronized (this) {
+            if (frame == null) {
+                throw new NullPointerException("frame");
+            }
+            if ((frame == latest) || (frame == painting)
+             || free.contains(frame)) {
+                throw new IllegalArgumentException(
+                 "Frame was not acquired from this stream.");
+            }
+            if (latest != null) {
+                if (!latestPainted) {
+                    droppedCount++;
+                }
+                if (latest != painting) {
+                    free.push(latest);
+                    notifyAll();
+                }
+            }
+            latest = frame;
+            latestPainted = false;
+            producedCount++;
+        }
+        Runnable current = listener;
+        if ((current != null) && repaintPending.compareAndSet(false, true)) {
+            current.run();
+        }
+    }
+
+    /**
+     * Returns an image acquired by {@link #acquire()} to the pool
+     * without publishing it, such as a frame that is no longer wanted.
+     */
+    synchronized void recycle(BufferedImage frame) {
+        free.push(frame);
+        notifyAll();
+    }
+
+    /**
+     * Sets what requests a repaint when a frame is published.
+     */
+    void setListener(Runnable listener) {
+        this.listener = listener;
+        repaintPending.set(false);
+    }
+
+    /**
+     * Creates a stream with a pool of images.
+     * @param width width of the frames
+     * @param height height of the frames
+     * @param type type of the frames, as in {@link BufferedImage#getType()},
+     * preferably {@link BufferedImage#TYPE_INT_RGB} or
+     * {@link BufferedImage#TYPE_INT_ARGB_PRE}
+     * @param buffers how many images are recycled, at least two,
+     * three to never block the producer
+     */
+    public FrameStream(int width, int height, int type, int buffers) {
+        if (buffers < 2) {
+            throw new IllegalArgumentException(
+             "At least two buffers are needed.");
+        }
+        this.width = width;
+        this.height = height;
+        for (int i = 0; i < buffers; i++) {
+            free.push(new BufferedImage(width, height, type));
+        }
+    }
+}
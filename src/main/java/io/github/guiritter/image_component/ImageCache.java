@@ -0,0 +1,288 @@
+package io.github.guiritter.image_component;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Images shared by many components, keyed by their {@link ImageSource}s,
+ * so that each image is read and held once no matter how many components
+ * show it. Images are acquired as {@link CachedImage} references, which are
+ * counted. The least recently used images are evicted when their total
+ * size exceeds a budget in bytes, and read again from their sources when
+ * needed. Images no longer referenced stay in memory until evicted,
+ * in case they're acquired again.
+ * A {@link #getShared() shared} cache serves the whole process.
+ * This class is thread safe.
+ * @author Guilherme Alan Ritter
+ */
+public final class ImageCache {
+
+    /**
+     * Maximum amount of bytes held by images in memory.
+     */
+    private long budget;
+
+    /**
+     * Amount of bytes currently held by images in memory.
+     */
+    private long bytes = 0;
+
+    /**
+     * Every image that is referenced or in memory.
+     */
+    private final HashMap<ImageSource, CachedImage> entries = new HashMap<>();
+
+    private long evictionCount = 0;
+
+    private long hitCount = 0;
+
+    /**
+     * Images in memory, from least to most recently used.
+     */
+    private final LinkedHashMap<ImageSource, CachedImage> loaded
+     = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long missCount = 0;
+
+    private static final ImageCache shared
+     = new ImageCache(Runtime.getRuntime().maxMemory() / 4);
+
+    /**
+     * Returns a reference to the image of a source, counting it.
+     * The reference must be released once it's no longer needed.
+     * The image is not read until needed.
+     * @param source where the image is read from
+     * @return the reference, the same for equal sources
+     */
+    public synchronized CachedImage acquire(ImageSource source) {
+        if (source == null) {
+            throw new NullPointerException("source");
+        }
+        CachedImage entry = entries.get(source);
+        if (entry == null) {
+            entry = new CachedImage(this, source);
+            entries.put(source, entry);
+        }
+        entry.references++;
+        return entry;
+    }
+
+    /**
+     * Reads an image, then keeps it if it's still wanted.
+     */
+    private void decode(
+     CachedImage entry, CompletableFuture<BufferedImage> future) {
+        synchronized (this) {
+            if (entries.get(entry.source) != entry) {
+                // released while waiting to be read, no longer wanted
+                entry.pending = null;
+                future.cancel(false);
+                return;
+            }
+        }
+        BufferedImage image;
+        try {
+            image = entry.source.read();
+        } catch (IOException | RuntimeException ex) {
+            synchronized (this) {
+                entry.pending = null;
+            }
+            future.completeExceptionally(ex);
+            return;
+        }
+        synchronized (this) {
+            entry.pending = null;
+            entry.width = image.getWidth();
+            entry.height = image.getHeight();
+            if (entries.get(entry.source) == entry) {
+                entry.image = image;
+                entry.bytes = getBytes(image);
+                bytes += entry.bytes;
+                loaded.put(entry.source, entry);
+                evict();
+            }
+        }
+        future.complete(image);
+    }
+
+    /**
+     * Evicts the least recently used images until the budget is respected,
+     * or until only the most recently used image remains.
+     */
+    private void evict() {
+        Iterator<CachedImage> iterator = loaded.values().iterator();
+        while ((bytes > budget) && (loaded.size() > 1)) {
+            CachedImage entry = iterator.next();
+            iterator.remove();
+            bytes -= entry.bytes;
+            entry.bytes = 0;
+            entry.image = null;
+            evictionCount++;
+            if (entry.references == 0) {
+                entries.remove(entry.source);
+            }
+        }
+    }
+
+    BufferedImage get(CachedImage entry) throws IOException {
+        CompletableFuture<BufferedImage> future;
+        boolean decode = false;
+        synchronized (this) {
+            if (entry.image != null) {
+                hitCount++;
+                loaded.get(entry.source);
+                return entry.image;
+            }
+            if (entry.pending == null) {
+                missCount++;
+                entry.pending = new CompletableFuture<>();
+                decode = true;
+            }
+            future = entry.pending;
+        }
+        if (decode) {
+            decode(entry, future);
+        }
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * @return maximum amount of bytes held by images in memory
+     */
+    public synchronized long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return amount of bytes currently held by images in memory
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private static long getBytes(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return ((long) buffer.getSize()) * buffer.getNumBanks()
+         * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    /**
+     * @return how many images are referenced or in memory
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return how many times an image was evicted
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return how many times an image was found in memory
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    synchronized BufferedImage getIfLoaded(CachedImage entry) {
+        if (entry.image != null) {
+            hitCount++;
+            loaded.get(entry.source);
+        }
+        return entry.image;
+    }
+
+    /**
+     * @return how many images are in memory
+     */
+    public synchronized int getLoadedCount() {
+        return loaded.size();
+    }
+
+    /**
+     * @return how many times an image had to be read from its source
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the cache shared by the whole process, whose budget
+     * is initially a quarter of the maximum heap size
+     */
+    public static ImageCache getShared() {
+        return shared;
+    }
+
+    CompletableFuture<BufferedImage> load(CachedImage entry) {
+        CompletableFuture<BufferedImage> future;
+        synchronized (this) {
+            if (entry.image != null) {
+                hitCount++;
+                loaded.get(entry.source);
+                return CompletableFuture.completedFuture(entry.image);
+            }
+            if (entry.pending != null) {
+                return entry.pending;
+            }
+            missCount++;
+            entry.pending = new CompletableFuture<>();
+            future = entry.pending;
+        }
+        ImageLoad.EXECUTOR.execute(() -> decode(entry, future));
+        return future;
+    }
+
+    synchronized void release(CachedImage entry) {
+        if (entry.references == 0) {
+            throw new IllegalStateException(
+             "Released more times than acquired: " + entry.source);
+        }
+        entry.references--;
+        if ((entry.references == 0) && (entry.image == null)) {
+            entries.remove(entry.source);
+        }
+    }
+
+    /**
+     * Sets the maximum amount of bytes held by images in memory,
+     * evicting images if needed.
+     * @param budget the budget
+     */
+    public synchronized void setBudget(long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException(
+             "Budget must not be negative: " + budget);
+        }
+        this.budget = budget;
+        evict();
+    }
+
+    /**
+     * Creates a cache.
+     * @param budget maximum amount of bytes held by images in memory
+     */
+    public ImageCache(long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException(
+             "Budget must not be negative: " + budget);
+        }
+        this.budget = budget;
+    }
+}
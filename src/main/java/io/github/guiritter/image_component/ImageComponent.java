@@ -1,9 +1,30 @@
 package io.github.guiritter.image_component;
 
+import java.awt.AlphaComposite;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 /**
  * Simple class to enable images in Swing applications.
@@ -17,12 +38,232 @@ import javax.swing.JComponent;
  * frame.pack();
  * frame.setLocationRelativeTo(null);
  * frame.setVisible(true);</pre></blockquote>
+ * When {@link #setFastFormat(boolean) enabled}, images are converted once
+ * to a pixel format that Java2D blends quickly, which is then painted
+ * instead of the original image.
+ * The image can also be {@link #setScaleMode(ScaleMode) scaled} to the area
+ * of the component, in which case the scaled image is kept until
+ * the image or the area change.
+ * Images can be {@link #loadImage(File) loaded} in the background, in which
+ * case the component takes the size of the image as soon as its header
+ * is read, and shows a low resolution preview until it's fully decoded.
+ * Frames produced at a high rate by other threads, such as animations
+ * played by a {@link FramePlayer}, can be shown through
+ * a {@link #setFrameStream(FrameStream) frame stream}, and small changes
+ * can be {@link #patch(int, int, Raster) patched} into the image.
+ * In {@link ScaleMode#ZOOM zoom} mode, the image can be zoomed and panned,
+ * {@link #setZoomInteractive(boolean) interactively} or not, and zoomed out
+ * images are painted from a {@link MipMap} built in the background.
+ * Scaled images can be painted with
+ * {@link #setAdaptiveQuality(boolean) adaptive quality}, cheap while they
+ * change and refined in the background once they stop changing.
+ * Images can also be given as an {@link #setImageSource(ImageSource, int, int)
+ * image source} and a declared size, in which case they are only decoded
+ * while the component is showing.
+ * Images shared by many components can be held by an {@link ImageCache}
+ * and {@link #setCachedImage(CachedImage) referenced} instead.
+ * High bit depth and floating point samples can be
+ * {@link #setMappedImage(MappedImage) shown through a window},
+ * mapping only what is visible.
+ * Painting can be timed by {@link #addPaintListener(PaintListener) listeners},
+ * such as {@link PaintMetrics}, and costs nothing extra without them.
  * @author Guilherme Alan Ritter
  */
 public class ImageComponent extends JComponent {
 
+    /**
+     * Painted instead of {@link #image} when the image is held
+     * by a cache, in which case the image itself is never kept.
+     */
+    private CachedImage cachedImage = null;
+
+    /**
+     * The last background read of {@link #cachedImage} this component
+     * waits for, so that it's only waited for once.
+     */
+    private CompletableFuture<BufferedImage> cachedImageLoad = null;
+
+    /**
+     * Height of the image being loaded, known before its pixels,
+     * or zero if no image is being loaded.
+     */
+    private int declaredHeight = 0;
+
+    /**
+     * Width of the image being loaded, known before its pixels,
+     * or zero if no image is being loaded.
+     */
+    private int declaredWidth = 0;
+
+    /**
+     * Whether images are converted to a pixel format that is fast to blend.
+     */
+    private boolean fastFormat = false;
+
+    /**
+     * Painted instead of {@link #image} when showing frames
+     * produced by another thread.
+     */
+    private FrameStream frameStream = null;
+
     private BufferedImage image = null;
 
+    /**
+     * What is actually painted: either {@link #image} itself or,
+     * when {@link #fastFormat} is true, its converted copy.
+     */
+    private BufferedImage imagePainted = null;
+
+    /**
+     * Decodes {@link #image} when this component is showing,
+     * or null if the image is set directly.
+     */
+    private ImageSource imageSource = null;
+
+    /**
+     * Used when the image is scaled.
+     */
+    private Object interpolation = RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+
+    /**
+     * The current background load, or null if there is none.
+     */
+    private ImageLoad load = null;
+
+    /**
+     * Painted instead of {@link #image} when showing samples mapped
+     * through a window.
+     */
+    private MappedImage mappedImage = null;
+
+    /**
+     * The visible part of {@link #mappedImage}, mapped at the painted size.
+     */
+    private BufferedImage mappedDisplay = null;
+
+    /**
+     * Repaints when {@link #mappedImage} changes.
+     */
+    private final Runnable mappedImageListener = this::repaint;
+
+    /**
+     * Where the whole mapped image was painted when
+     * {@link #mappedDisplay} was mapped.
+     */
+    private Rectangle mappedPlacement = null;
+
+    /**
+     * Region of the component shown by {@link #mappedDisplay}.
+     */
+    private Rectangle mappedRegion = null;
+
+    /**
+     * Version of {@link #mappedImage} when {@link #mappedDisplay}
+     * was mapped.
+     */
+    private long mappedVersion = 0;
+
+    /**
+     * Smaller copies of {@link #imagePainted}, used in zoom mode.
+     */
+    private MipMap mipMap = null;
+
+    /**
+     * Notified of paint timings, or null if there are none,
+     * so that painting isn't timed at all.
+     */
+    private PaintListener paintListeners[] = null;
+
+    /**
+     * Patches written into {@link #image} since the last repaint.
+     */
+    private final PatchBatch patches = new PatchBatch(this::imageChanged);
+
+    /**
+     * Milliseconds without changes before a high quality rendering
+     * of the scaled image starts, when the quality is adaptive.
+     */
+    private int refineDelay = 250;
+
+    /**
+     * Renders the scaled image with high quality in the background,
+     * or null if the quality is not adaptive.
+     */
+    private Refiner refiner = null;
+
+    /**
+     * Milliseconds this component must stay hidden before the image
+     * decoded from {@link #imageSource} is released.
+     */
+    private int releaseDelay = 30000;
+
+    /**
+     * Releases the image decoded from {@link #imageSource} once this
+     * component stayed hidden for the release delay,
+     * or null if it wasn't needed yet.
+     */
+    private Timer releaseTimer = null;
+
+    /**
+     * How the image is scaled to the area of the component.
+     */
+    private ScaleMode scaleMode = ScaleMode.NONE;
+
+    /**
+     * The last scaled copy of {@link #imagePainted}.
+     */
+    private final ScaledImage scaledImage = new ScaledImage();
+
+    /**
+     * Decodes or releases the image of {@link #imageSource}
+     * when this component is shown or hidden.
+     */
+    private final HierarchyListener showingListener = this::showingChanged;
+
+    /**
+     * Declared height of the image of {@link #imageSource}.
+     */
+    private int sourceHeight = 0;
+
+    /**
+     * The running decode of {@link #imageSource}, or null if there is none.
+     */
+    private CompletableFuture<BufferedImage> sourceLoad = null;
+
+    /**
+     * Declared width of the image of {@link #imageSource}.
+     */
+    private int sourceWidth = 0;
+
+    /**
+     * Painted instead of {@link #image} when the image is too large
+     * to be in memory.
+     */
+    private TiledImage tiledImage = null;
+
+    /**
+     * Horizontal position of the image painted at the left edge of the
+     * component in zoom mode, in the image's coordinates.
+     */
+    private double viewX = 0;
+
+    /**
+     * Vertical position of the image painted at the top edge of the
+     * component in zoom mode, in the image's coordinates.
+     */
+    private double viewY = 0;
+
+    /**
+     * Size of the painted image relative to the image in zoom mode.
+     */
+    private double zoom = 1;
+
+    /**
+     * Zooms with the mouse wheel and pans by dragging,
+     * or null if zooming is not interactive.
+     */
+    private ZoomInteraction zoomInteraction = null;
+
     private static final long serialVersionUID = -7869351502568971416L;
 
     protected final Dimension size = new Dimension(0, 0);
@@ -53,18 +294,354 @@ public class ImageComponent extends JComponent {
      */
     protected boolean sizePreferredAuto = true;
 
+    /**
+     * Registers a listener to be notified of the time spent painting
+     * and changing the image of this component.
+     * @param listener the listener
+     */
+    public void addPaintListener(PaintListener listener) {
+        if (listener == null) {
+            return;
+        }
+        if (paintListeners == null) {
+            paintListeners = new PaintListener[] {listener};
+        } else {
+            paintListeners = Arrays.copyOf(
+             paintListeners, paintListeners.length + 1);
+            paintListeners[paintListeners.length - 1] = listener;
+        }
+    }
+
+    /**
+     * Copies a region of the pixels of an image to another image,
+     * converting between pixel formats if needed.
+     * @param source where the pixels are copied from
+     * @param target where the pixels are copied to
+     * @param region the region to copy, or null for the whole image
+     */
+    protected static void copyRegion(
+     BufferedImage source, BufferedImage target, Rectangle region) {
+        Graphics2D g = target.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        if (region != null) {
+            g.clip(region);
+        }
+        drawClipped(g, source, 0, 0);
+        g.dispose();
+    }
+
+    /**
+     * Draws the part of an image that intersects the clip of the graphics
+     * context, instead of pushing the whole image through the pipeline.
+     * @param g where to draw
+     * @param image what to draw, may be null
+     * @param x horizontal position of the top left corner of the image
+     * @param y vertical position of the top left corner of the image
+     */
+    protected static void drawClipped(
+     Graphics g, BufferedImage image, int x, int y) {
+        if (image == null) {
+            return;
+        }
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            g.drawImage(image, x, y, null);
+            return;
+        }
+        int x1 = Math.max(clip.x, x);
+        int y1 = Math.max(clip.y, y);
+        int x2 = Math.min(clip.x + clip.width , x + image.getWidth());
+        int y2 = Math.min(clip.y + clip.height, y + image.getHeight());
+        if ((x1 >= x2) || (y1 >= y2)) {
+            return;
+        }
+        g.drawImage(image, x1, y1, x2, y2,
+         x1 - x, y1 - y, x2 - x, y2 - y, null);
+    }
+
+    /**
+     * Draws an image scaled to a region from its smallest copy that is
+     * still at least as large as the region. Only the part of the region
+     * inside the clip of the graphics context is processed.
+     * @param g where to draw
+     * @param mipMap copies of what to draw
+     * @param target where to draw the image
+     */
+    protected void drawZoomed(Graphics g, MipMap mipMap, Rectangle target) {
+        if (target.isEmpty()) {
+            return;
+        }
+        drawStretched(g, mipMap.get(
+         ((double) target.width) / mipMap.source.getWidth()), target,
+         interpolation);
+    }
+
+    /**
+     * Draws an image scaled to a region on the fly.
+     * @param g where to draw
+     * @param image what to draw
+     * @param target where to draw the image
+     * @param interpolation one of the
+     * {@link RenderingHints#KEY_INTERPOLATION} values
+     */
+    private static void drawStretched(Graphics g, BufferedImage image,
+     Rectangle target, Object interpolation) {
+        Graphics2D g2D = (Graphics2D) g;
+        Object previous
+         = g2D.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+        g2D.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        g2D.drawImage(image, target.x, target.y,
+         target.width, target.height, null);
+        if (previous != null) {
+            g2D.setRenderingHint(RenderingHints.KEY_INTERPOLATION, previous);
+        }
+    }
+
+    /**
+     * Notifies the paint listeners that the image changed.
+     * Must only be called when {@link #isInstrumented()} is true.
+     * @param start when the change started, from {@link System#nanoTime()}
+     */
+    protected void fireImageChanged(long start) {
+        long nanos = System.nanoTime() - start;
+        for (PaintListener listener : paintListeners) {
+            listener.imageChanged(this, nanos);
+        }
+    }
+
+    /**
+     * Sets the sizes that follow the size of the image, if configured
+     * to do so, and repaints the component.
+     */
+    protected void followImageSize() {
+        if (sizeAuto         ) setAutoSize();
+        if (sizeMinimumAuto  ) setAutoSizeMinimum();
+        if (sizePreferredAuto) setAutoSizePreferred();
+        if (sizeMaximumAuto  ) setAutoSizeMaximum();
+        repaint();
+    }
+
+    /**
+     * Returns an image in a pixel format that Java2D blends quickly:
+     * {@link BufferedImage#TYPE_INT_ARGB_PRE} for images with alpha and
+     * {@link BufferedImage#TYPE_INT_RGB} for opaque images.
+     * @param image the image to be converted, may be null
+     * @return the image itself if it's already in such a format,
+     * or a converted copy of it otherwise
+     */
+    protected static BufferedImage toFastFormat(BufferedImage image) {
+        if ((image == null)
+         || (image.getType() == BufferedImage.TYPE_INT_ARGB_PRE)
+         || (image.getType() == BufferedImage.TYPE_INT_RGB)) {
+            return image;
+        }
+        BufferedImage converted = new BufferedImage(
+         image.getWidth(), image.getHeight(),
+         image.getColorModel().hasAlpha()
+          ? BufferedImage.TYPE_INT_ARGB_PRE
+          : BufferedImage.TYPE_INT_RGB);
+        copyRegion(image, converted, null);
+        return converted;
+    }
+
+    /**
+     * Stops the current background load and everything else that this
+     * component paints, before something else is shown.
+     */
+    private void detachAll() {
+        cancelLoad();
+        resetImage();
+    }
+
+    /**
+     * Stops painting from the frame stream, if any.
+     */
+    private void detachFrameStream() {
+        if (frameStream != null) {
+            frameStream.setListener(null);
+            frameStream = null;
+        }
+    }
+
+    /**
+     * Stops decoding and releasing the image of the image source, if any.
+     */
+    private void detachImageSource() {
+        if (imageSource != null) {
+            removeHierarchyListener(showingListener);
+            releaseTimer.stop();
+            if (sourceLoad != null) {
+                sourceLoad.cancel(true);
+                sourceLoad = null;
+            }
+            imageSource = null;
+            sourceWidth = 0;
+            sourceHeight = 0;
+        }
+    }
+
+    /**
+     * Stops painting the mapped image, if any, and discards what was mapped.
+     */
+    private void detachMappedImage() {
+        if (mappedImage != null) {
+            mappedImage.removeListener(mappedImageListener);
+            mappedImage = null;
+        }
+        mappedDisplay = null;
+        mappedPlacement = null;
+        mappedRegion = null;
+    }
+
+    /**
+     * Stops the current background load, if any,
+     * leaving what is being shown as it is.
+     */
+    public void cancelLoad() {
+        if (load != null) {
+            load.cancel();
+            load = null;
+        }
+    }
+
+    /**
+     * @return the reference to the image held by a cache that this component
+     * paints, or null if it doesn't paint a cached image
+     */
+    public CachedImage getCachedImage() {
+        return cachedImage;
+    }
+
+    /**
+     * @return the stream whose frames this component displays,
+     * or null if it displays a regular image
+     */
+    public FrameStream getFrameStream() {
+        return frameStream;
+    }
+
     @Override
     public int getHeight() {
         return size.height;
     }
 
     /**
-     * @return the image that this component displays
+     * Decodes the image of the image source in the background,
+     * unless it's decoded or being decoded already.
+     */
+    private void decodeSource() {
+        if ((image != null) || (sourceLoad != null)) {
+            return;
+        }
+        final ImageSource requested = imageSource;
+        final CompletableFuture<BufferedImage> future
+         = CompletableFuture.supplyAsync(() -> {
+            try {
+                return requested.read();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, ImageLoad.EXECUTOR);
+        sourceLoad = future;
+        future.whenCompleteAsync((decoded, failure) -> {
+            if (future != sourceLoad) {
+                return;
+            }
+            // on failure, decoding is tried again when shown again
+            sourceLoad = null;
+            if (decoded != null) {
+                image = decoded;
+                imagePainted = fastFormat ? toFastFormat(decoded) : decoded;
+                mipMap = null;
+                repaint();
+            }
+        }, SwingUtilities::invokeLater);
+    }
+
+    /**
+     * @return the image that this component displays, or null if it has
+     * none, or if the image of its image source isn't decoded
      */
     public BufferedImage getImage() {
         return image;
     }
 
+    /**
+     * @return the height of what this component displays,
+     * or zero if it's empty
+     */
+    protected int getImageHeight() {
+        if (tiledImage != null) {
+            return tiledImage.getHeight();
+        }
+        if (frameStream != null) {
+            return frameStream.getHeight();
+        }
+        if (cachedImage != null) {
+            return cachedImage.getHeight();
+        }
+        if (mappedImage != null) {
+            return mappedImage.getHeight();
+        }
+        if (imageSource != null) {
+            return sourceHeight;
+        }
+        if (declaredHeight > 0) {
+            return declaredHeight;
+        }
+        return (image == null) ? 0 : image.getHeight();
+    }
+
+    /**
+     * @return the width of what this component displays,
+     * or zero if it's empty
+     */
+    protected int getImageWidth() {
+        if (tiledImage != null) {
+            return tiledImage.getWidth();
+        }
+        if (frameStream != null) {
+            return frameStream.getWidth();
+        }
+        if (cachedImage != null) {
+            return cachedImage.getWidth();
+        }
+        if (mappedImage != null) {
+            return mappedImage.getWidth();
+        }
+        if (imageSource != null) {
+            return sourceWidth;
+        }
+        if (declaredWidth > 0) {
+            return declaredWidth;
+        }
+        return (image == null) ? 0 : image.getWidth();
+    }
+
+    /**
+     * @return what decodes the image of this component when it's showing,
+     * or null if the image is set directly
+     */
+    public ImageSource getImageSource() {
+        return imageSource;
+    }
+
+    /**
+     * @return the interpolation used when the image is scaled, one of the
+     * {@link RenderingHints#KEY_INTERPOLATION} values
+     */
+    public Object getInterpolation() {
+        return interpolation;
+    }
+
+    /**
+     * @return the samples this component displays through a window,
+     * or null if it displays something else
+     */
+    public MappedImage getMappedImage() {
+        return mappedImage;
+    }
+
     @Override
     public Dimension getMaximumSize() {
         return new Dimension(sizeMaximum);
@@ -99,6 +676,45 @@ public class ImageComponent extends JComponent {
         return sizeMinimumAuto;
     }
 
+    /**
+     * @return copies of the painted image for zoom mode,
+     * created when first needed
+     */
+    private MipMap getMipMap() {
+        if ((mipMap == null) || (mipMap.source != imagePainted)) {
+            mipMap = new MipMap(imagePainted, this::repaint);
+        }
+        return mipMap;
+    }
+
+    /**
+     * @return the image patches are written into
+     * @throws IllegalStateException if there's no regular image
+     */
+    private BufferedImage getPatchedImage() {
+        BufferedImage patched = image;
+        if ((patched == null) || (declaredWidth > 0) || (imageSource != null)) {
+            throw new IllegalStateException("There is no image to patch.");
+        }
+        return patched;
+    }
+
+    /**
+     * Computes where the image is painted, according to the scale mode
+     * and to the area the component currently occupies.
+     * @return position and size of the painted image, relative to the component
+     */
+    protected Rectangle getPlacement() {
+        if (scaleMode == ScaleMode.ZOOM) {
+            return new Rectangle(
+             (int) Math.round(-viewX * zoom), (int) Math.round(-viewY * zoom),
+             (int) Math.round(getImageWidth() * zoom),
+             (int) Math.round(getImageHeight() * zoom));
+        }
+        return scaleMode.place(getImageWidth(), getImageHeight(),
+         super.getWidth(), super.getHeight());
+    }
+
     @Override
     public Dimension getPreferredSize() {
         return new Dimension(sizePreferred);
@@ -116,6 +732,29 @@ public class ImageComponent extends JComponent {
         return sizePreferredAuto;
     }
 
+    /**
+     * @return milliseconds without changes before a high quality rendering
+     * starts, when the quality is adaptive
+     */
+    public int getRefineDelay() {
+        return refineDelay;
+    }
+
+    /**
+     * @return milliseconds this component must stay hidden before
+     * the image decoded from its image source is released
+     */
+    public int getReleaseDelay() {
+        return releaseDelay;
+    }
+
+    /**
+     * @return how the image is scaled to the area of the component
+     */
+    public ScaleMode getScaleMode() {
+        return scaleMode;
+    }
+
     @Override
     public Dimension getSize() {
         return new Dimension(size);
@@ -143,23 +782,449 @@ public class ImageComponent extends JComponent {
         return sizeAuto;
     }
 
+    /**
+     * @return the tiled image that this component displays,
+     * or null if it displays a regular image
+     */
+    public TiledImage getTiledImage() {
+        return tiledImage;
+    }
+
+    /**
+     * @return position of the image painted at the top left corner
+     * of the component in zoom mode, in the image's coordinates
+     */
+    public Point2D.Double getViewOrigin() {
+        return new Point2D.Double(viewX, viewY);
+    }
+
     @Override
     public int getWidth() {
         return size.width;
     }
 
+    /**
+     * @return size of the painted image relative to the image in zoom mode
+     */
+    public double getZoom() {
+        return zoom;
+    }
+
+    /**
+     * Signals that the pixels inside a region of the image have changed,
+     * so that only that region is repainted. Replacing the image itself
+     * still requires {@link #setImage(BufferedImage)}.
+     * @param region the changed region, in the image's coordinates,
+     * or null if the whole image changed
+     */
+    public void imageChanged(Rectangle region) {
+        if (imagePainted != image) {
+            copyRegion(image, imagePainted, region);
+        }
+        scaledImage.invalidate();
+        if (mipMap != null) {
+            mipMap.invalidate();
+        }
+        if (refiner != null) {
+            refiner.invalidate();
+        }
+        if (region == null) {
+            repaint();
+        } else {
+            repaint(toPlacement(region));
+        }
+    }
+
+    /**
+     * Whether the scaled image is painted with cheap rendering while it
+     * changes, and with high quality rendering once it stops changing.
+     * @return true if the quality is adaptive, false otherwise
+     */
+    public boolean isAdaptiveQuality() {
+        return refiner != null;
+    }
+
+    /**
+     * Whether images are converted to a pixel format that is fast to blend.
+     * @return true if images are converted, false otherwise
+     */
+    public boolean isFastFormat() {
+        return fastFormat;
+    }
+
+    /**
+     * Whether there are paint listeners, so that work is timed.
+     * @return true if there are paint listeners, false otherwise
+     */
+    protected boolean isInstrumented() {
+        return paintListeners != null;
+    }
+
+    /**
+     * Whether the image can be zoomed with the mouse wheel
+     * and panned by dragging.
+     * @return true if zooming is interactive, false otherwise
+     */
+    public boolean isZoomInteractive() {
+        return zoomInteraction != null;
+    }
+
     /**
      * Whether this component contains an image.
      * @return true if this component contains an image; false otherwise
      */
     public boolean isEmpty() {
-        return image == null;
+        return (image == null) && (tiledImage == null)
+         && (declaredWidth == 0) && (frameStream == null)
+         && (cachedImage == null) && (mappedImage == null)
+         && (imageSource == null);
+    }
+
+    /**
+     * Called by a background load with the full image.
+     */
+    void loaded(ImageLoad load, BufferedImage image) {
+        if (load == this.load) {
+            this.load = null;
+            setImage(image);
+        }
+    }
+
+    /**
+     * Called by a background load with a low resolution image,
+     * which is stretched to the size of the full image.
+     */
+    void loadedPreview(ImageLoad load, BufferedImage preview) {
+        if (load == this.load) {
+            image = preview;
+            imagePainted = preview;
+            repaint();
+        }
+    }
+
+    /**
+     * Called by a background load with the size read from the header.
+     */
+    void loadedSize(ImageLoad load, int width, int height) {
+        if (load == this.load) {
+            // the load itself keeps running
+            resetImage();
+            declaredWidth = width;
+            declaredHeight = height;
+            followImageSize();
+        }
+    }
+
+    /**
+     * Reads the cached image in the background, then follows its size,
+     * which is unknown until it's first read, and repaints.
+     */
+    private void loadCachedImage() {
+        final CachedImage requested = cachedImage;
+        CompletableFuture<BufferedImage> future = requested.load();
+        if (future == cachedImageLoad) {
+            return;
+        }
+        cachedImageLoad = future;
+        future.thenRunAsync(() -> {
+            if (cachedImage == requested) {
+                followImageSize();
+            }
+        }, SwingUtilities::invokeLater);
+    }
+
+    /**
+     * Decodes an image file in the background and shows it once decoded,
+     * replacing the current image. The sizes of the component follow
+     * the size of the image as soon as its header is read, and a
+     * low resolution preview is shown while large images are decoded.
+     * A load that is still running when another one starts, or when
+     * an image is set, is cancelled.
+     * Must be called on the event dispatch thread.
+     * @param file the image file
+     * @return completes on the event dispatch thread, after the image
+     * is shown, or exceptionally if it couldn't be read or was cancelled
+     */
+    public CompletableFuture<BufferedImage> loadImage(File file) {
+        return startLoad(file);
+    }
+
+    /**
+     * Decodes an image from a URL in the background and shows it
+     * once decoded, the same way as {@link #loadImage(File)}.
+     * @param url where the image is read from
+     * @return completes on the event dispatch thread, after the image
+     * is shown, or exceptionally if it couldn't be read or was cancelled
+     */
+    public CompletableFuture<BufferedImage> loadImage(URL url) {
+        return startLoad(url);
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        g.drawImage(image, 0, 0, null);
+        if (paintListeners == null) {
+            paintImage(g);
+            return;
+        }
+        long start = System.nanoTime();
+        int images = paintImage(g);
+        long nanos = System.nanoTime() - start;
+        Rectangle painted = getPlacement();
+        Rectangle clip = g.getClipBounds();
+        if (clip != null) {
+            painted = painted.intersection(clip);
+        }
+        long pixels = painted.isEmpty()
+         ? 0 : (((long) painted.width) * painted.height * images);
+        for (PaintListener listener : paintListeners) {
+            listener.painted(this, nanos, pixels, images);
+        }
+    }
+
+    /**
+     * Paints what this component displays.
+     * @param g where to paint
+     * @return how many images were drawn
+     */
+    protected int paintImage(Graphics g) {
+        if ((imageSource != null) && (image == null)) {
+            decodeSource();
+        }
+        if (tiledImage != null) {
+            tiledImage.paint(g, 0, 0);
+        } else if (frameStream != null) {
+            BufferedImage frame = frameStream.beginPaint();
+            try {
+                if (scaleMode == ScaleMode.NONE) {
+                    drawClipped(g, frame, 0, 0);
+                } else if (frame != null) {
+                    // frames change every time, so caching doesn't pay off
+                    Rectangle placement = getPlacement();
+                    g.drawImage(frame, placement.x, placement.y,
+                     placement.width, placement.height, null);
+                }
+            } finally {
+                frameStream.endPaint();
+            }
+        } else if (cachedImage != null) {
+            BufferedImage current = cachedImage.getIfLoaded();
+            if (current == null) {
+                loadCachedImage();
+            } else if (scaleMode == ScaleMode.NONE) {
+                drawClipped(g, current, 0, 0);
+            } else {
+                // a scaled copy would be held outside of the cache's budget
+                Rectangle placement = getPlacement();
+                if (!placement.isEmpty()) {
+                    drawStretched(g, current, placement, interpolation);
+                }
+            }
+        } else if (mappedImage != null) {
+            paintMapped(g);
+        } else if ((declaredWidth > 0) && (imagePainted != null)) {
+            // preview, stretched on the fly since it's short lived
+            Rectangle placement = getPlacement();
+            g.drawImage(imagePainted, placement.x, placement.y,
+             placement.width, placement.height, null);
+        } else if ((scaleMode == ScaleMode.NONE) && (imageSource != null)
+         && (imagePainted != null)
+         && ((imagePainted.getWidth() != sourceWidth)
+          || (imagePainted.getHeight() != sourceHeight))) {
+            // painted as if it had the declared size, like in other modes
+            drawClipped(g, scaledImage.get(imagePainted, sourceWidth,
+             sourceHeight, interpolation), 0, 0);
+        } else if ((scaleMode == ScaleMode.NONE) || (imagePainted == null)) {
+            drawClipped(g, imagePainted, 0, 0);
+        } else if (refiner != null) {
+            paintAdaptive(g);
+        } else if (scaleMode == ScaleMode.ZOOM) {
+            drawZoomed(g, getMipMap(), getPlacement());
+        } else {
+            Rectangle placement = getPlacement();
+            if (!placement.isEmpty()) {
+                drawClipped(g, scaledImage.get(imagePainted, placement.width,
+                 placement.height, interpolation), placement.x, placement.y);
+            }
+        }
+        return isEmpty() ? 0 : 1;
+    }
+
+    /**
+     * Paints the scaled image from its high quality rendering, if it
+     * covers what must be painted, or with nearest neighbor interpolation
+     * otherwise, scheduling the high quality rendering for when it stops
+     * changing. In zoom mode, only the visible region is rendered.
+     */
+    private void paintAdaptive(Graphics g) {
+        final Rectangle placement = getPlacement();
+        final BufferedImage source = imagePainted;
+        if ((placement.width == source.getWidth())
+         && (placement.height == source.getHeight())) {
+            drawClipped(g, source, placement.x, placement.y);
+            return;
+        }
+        final MipMap levels
+         = (scaleMode == ScaleMode.ZOOM) ? getMipMap() : null;
+        final Rectangle region = (levels == null)
+         ? placement : placement.intersection(getVisibleRect());
+        if (region.isEmpty()) {
+            return;
+        }
+        final Object quality = interpolation;
+        BufferedImage refined = refiner.get(source, placement, region,
+         () -> render(source, levels, placement, region, quality));
+        if (refined != null) {
+            Rectangle shown = refiner.getRegion();
+            drawClipped(g, refined, shown.x, shown.y);
+        } else {
+            drawStretched(g, (levels == null) ? source : levels.get(
+             ((double) placement.width) / source.getWidth()), placement,
+             RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        }
+    }
+
+    /**
+     * Paints the visible part of the mapped image, mapping it again
+     * only if what is visible, where it's painted or the mapping changed.
+     */
+    private void paintMapped(Graphics g) {
+        Rectangle placement = getPlacement();
+        Rectangle region = placement.intersection(getVisibleRect());
+        if (region.isEmpty()) {
+            return;
+        }
+        if ((mappedDisplay == null)
+         || (mappedVersion != mappedImage.getVersion())
+         || (!placement.equals(mappedPlacement))
+         || (!mappedRegion.contains(region))) {
+            if ((mappedDisplay == null)
+             || (mappedDisplay.getWidth() != region.width)
+             || (mappedDisplay.getHeight() != region.height)) {
+                mappedDisplay = new BufferedImage(
+                 region.width, region.height, BufferedImage.TYPE_INT_RGB);
+            }
+            mappedImage.map(((DataBufferInt) mappedDisplay.getRaster()
+             .getDataBuffer()).getData(), 0, region.width,
+             placement, region, ForkJoinPool.commonPool());
+            mappedPlacement = placement;
+            mappedRegion = region;
+            mappedVersion = mappedImage.getVersion();
+        }
+        drawClipped(g, mappedDisplay, mappedRegion.x, mappedRegion.y);
+    }
+
+    /**
+     * Writes a rectangle of pixels straight into the image, without
+     * replacing it. Patches written before the event dispatch thread gets
+     * to them are repainted together, as a single change of their union.
+     * May be called from any thread, in which case a paint running
+     * at the same time may show the patch partially written,
+     * until the repaint that follows it.
+     * @param x horizontal position of the rectangle in the image
+     * @param y vertical position of the rectangle in the image
+     * @param width width of the rectangle
+     * @param height height of the rectangle
+     * @param pixels the pixels, in the default RGB color model,
+     * as by {@link BufferedImage#getRGB(int, int)}
+     * @param offset index of the top left pixel of the rectangle in the array
+     * @param scanSize distance between rows in the array
+     */
+    public void patch(int x, int y, int width, int height,
+     int pixels[], int offset, int scanSize) {
+        patches.add(PatchBatch.write(getPatchedImage(),
+         x, y, width, height, pixels, offset, scanSize));
+    }
+
+    /**
+     * Writes a raster straight into the image, without replacing it.
+     * Patches written before the event dispatch thread gets to them
+     * are repainted together, as a single change of their union.
+     * May be called from any thread, in which case a paint running
+     * at the same time may show the patch partially written,
+     * until the repaint that follows it.
+     * @param x horizontal position of the raster in the image
+     * @param y vertical position of the raster in the image
+     * @param pixels the pixels, in the same format as the image
+     */
+    public void patch(int x, int y, Raster pixels) {
+        patches.add(PatchBatch.write(getPatchedImage(), x, y, pixels));
+    }
+
+    /**
+     * Renders a region of a scaled image with high quality,
+     * on a background thread.
+     * @param source the image
+     * @param levels copies of the image to render from in zoom mode,
+     * or null to scale the whole image to the placement
+     * @param placement where the whole image is painted
+     * @param region the region of the component to be rendered
+     * @param interpolation one of the
+     * {@link RenderingHints#KEY_INTERPOLATION} values
+     * @return the rendering of the region
+     */
+    private static BufferedImage render(BufferedImage source, MipMap levels,
+     Rectangle placement, Rectangle region, Object interpolation) {
+        if (levels == null) {
+            return ScaledImage.scale(
+             source, placement.width, placement.height, interpolation);
+        }
+        BufferedImage rendered = new BufferedImage(
+         region.width, region.height, source.getColorModel().hasAlpha()
+          ? BufferedImage.TYPE_INT_ARGB_PRE : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rendered.createGraphics();
+        g.translate(-region.x, -region.y);
+        drawStretched(g, levels.get(
+         ((double) placement.width) / source.getWidth()), placement,
+         interpolation);
+        g.dispose();
+        return rendered;
+    }
+
+    /**
+     * Enables or disables adaptive quality. While the scaled image changes,
+     * such as while the component is resized, the image is zoomed or panned,
+     * or images are set in quick succession, it's painted with nearest
+     * neighbor interpolation, which is cheap. Once nothing changed for
+     * the {@link #setRefineDelay(int) refine delay}, it's rendered
+     * in the background with the interpolation of this component
+     * and swapped in. Rendering that goes stale is cancelled.
+     * Only applies to regular images.
+     * @param adaptive true to enable it, false to disable it
+     */
+    public void setAdaptiveQuality(boolean adaptive) {
+        if (adaptive == (refiner != null)) {
+            return;
+        }
+        if (adaptive) {
+            refiner = new Refiner(refineDelay, this::repaint);
+            scaledImage.invalidate();
+        } else {
+            refiner.invalidate();
+            refiner = null;
+        }
+        repaint();
+    }
+
+    /**
+     * Releases the image decoded from the image source,
+     * if this component is still hidden.
+     */
+    private void releaseSourceImage() {
+        if ((imageSource == null) || isShowing()) {
+            return;
+        }
+        if (sourceLoad != null) {
+            sourceLoad.cancel(true);
+            sourceLoad = null;
+        }
+        image = null;
+        imagePainted = null;
+        mipMap = null;
+        scaledImage.invalidate();
+        if (refiner != null) {
+            refiner.invalidate();
+        }
     }
 
     /**
@@ -169,7 +1234,7 @@ public class ImageComponent extends JComponent {
         if (isEmpty()) {
             size.setSize(0, 0);
         } else {
-            size.setSize(image.getWidth(), image.getHeight());
+            size.setSize(getImageWidth(), getImageHeight());
         }
     }
 
@@ -180,7 +1245,7 @@ public class ImageComponent extends JComponent {
         if (isEmpty()) {
             sizeMaximum.setSize(0, 0);
         } else {
-            sizeMaximum.setSize(image.getWidth(), image.getHeight());
+            sizeMaximum.setSize(getImageWidth(), getImageHeight());
         }
     }
 
@@ -191,7 +1256,7 @@ public class ImageComponent extends JComponent {
         if (isEmpty()) {
             sizeMinimum.setSize(0, 0);
         } else {
-            sizeMinimum.setSize(image.getWidth(), image.getHeight());
+            sizeMinimum.setSize(getImageWidth(), getImageHeight());
         }
     }
 
@@ -202,8 +1267,64 @@ public class ImageComponent extends JComponent {
         if (isEmpty()) {
             sizePreferred.setSize(0, 0);
         } else {
-            sizePreferred.setSize(image.getWidth(), image.getHeight());
+            sizePreferred.setSize(getImageWidth(), getImageHeight());
+        }
+    }
+
+    /**
+     * Sets an image held by a cache as what this component paints,
+     * replacing any other image. The component takes over the reference,
+     * and releases it when the image is replaced. The image is read in the
+     * background when it's painted but not in memory, or right away if its
+     * size is not known yet, and is never kept by the component, so that
+     * the cache can evict it. The sizes of the component follow the size
+     * of the image, once it's known, if configured to do so.
+     * Scaled images are scaled on every paint, so images shown scaled
+     * should rather be cached already scaled, through
+     * {@link ImageSource#scaled(ImageSource, int, int)}.
+     * @param cachedImage a reference acquired from a cache,
+     * or null to paint nothing
+     */
+    public void setCachedImage(CachedImage cachedImage) {
+        detachAll();
+        this.cachedImage = cachedImage;
+        if ((cachedImage != null) && (cachedImage.getWidth() == 0)) {
+            // the size is only known once the image is read
+            loadCachedImage();
+        }
+        followImageSize();
+    }
+
+    /**
+     * Enables or disables converting images to a pixel format that is fast
+     * to blend. The conversion happens once per image, instead of
+     * Java2D converting generic formats on every paint, at the cost of
+     * keeping a copy of images that are not already in such a format.
+     * Changes to the pixels of the image must then be signaled through
+     * {@link #imageChanged(Rectangle)} to reach the copy.
+     * @param fastFormat true to convert images, false to paint them as they are
+     */
+    public void setFastFormat(boolean fastFormat) {
+        this.fastFormat = fastFormat;
+        imagePainted = fastFormat ? toFastFormat(image) : image;
+        repaint();
+    }
+
+    /**
+     * Sets a stream of frames as what this component paints, replacing
+     * any image. Each repaint shows the newest frame of the stream, and
+     * publishing a frame requests a repaint if none is pending.
+     * The sizes of the component follow the size of the frames,
+     * if configured to do so.
+     * @param frameStream what this will be used to show
+     */
+    public void setFrameStream(FrameStream frameStream) {
+        detachAll();
+        this.frameStream = frameStream;
+        if (frameStream != null) {
+            frameStream.setListener(this::repaint);
         }
+        followImageSize();
     }
 
     /**
@@ -213,12 +1334,53 @@ public class ImageComponent extends JComponent {
      * @param image what this will be used to show
      */
     public void setImage(BufferedImage image) {
+        long start = (paintListeners == null) ? 0 : System.nanoTime();
+        detachAll();
         this.image = image;
-        if (sizeAuto         ) setAutoSize();
-        if (sizeMinimumAuto  ) setAutoSizeMinimum();
-        if (sizePreferredAuto) setAutoSizePreferred();
-        if (sizeMaximumAuto  ) setAutoSizeMaximum();
-        /*if (!isEmpty())*/ repaint();
+        imagePainted = fastFormat ? toFastFormat(image) : image;
+        followImageSize();
+        if (paintListeners != null) {
+            fireImageChanged(start);
+        }
+    }
+
+    /**
+     * Sets a source of the image that this component paints, replacing any
+     * image, along with the size of the image, so that the image itself is
+     * only decoded, in the background, once this component is showing.
+     * After this component has been hidden, such as on another tab,
+     * for the {@link #setReleaseDelay(int) release delay}, the image is
+     * released, and decoded again when this component is shown again.
+     * The sizes of the component follow the declared size, if configured
+     * to do so, and the image is painted as if it had the declared size.
+     * Sources can be files, URLs or anything that creates an image,
+     * such as {@code () -> render()}.
+     * @param source what decodes the image
+     * @param width declared width of the image
+     * @param height declared height of the image
+     */
+    public void setImageSource(ImageSource source, int width, int height) {
+        if (source == null) {
+            throw new NullPointerException("source");
+        }
+        if ((width <= 0) || (height <= 0)) {
+            throw new IllegalArgumentException(
+             "Size must be positive: " + width + "x" + height);
+        }
+        detachAll();
+        imageSource = source;
+        sourceWidth = width;
+        sourceHeight = height;
+        if (releaseTimer == null) {
+            releaseTimer
+             = new Timer(releaseDelay, event -> releaseSourceImage());
+            releaseTimer.setRepeats(false);
+        }
+        addHierarchyListener(showingListener);
+        if (isShowing()) {
+            decodeSource();
+        }
+        followImageSize();
     }
 
     /**
@@ -229,6 +1391,42 @@ public class ImageComponent extends JComponent {
         setImage(image);
     }
 
+    /**
+     * Sets the interpolation used when the image is scaled.
+     * @param interpolation one of the
+     * {@link RenderingHints#KEY_INTERPOLATION} values
+     */
+    public void setInterpolation(Object interpolation) {
+        if (!RenderingHints.KEY_INTERPOLATION.isCompatibleValue(
+         interpolation)) {
+            throw new IllegalArgumentException(
+             "Not an interpolation rendering hint value: " + interpolation);
+        }
+        this.interpolation = interpolation;
+        if (refiner != null) {
+            refiner.invalidate();
+        }
+        repaint();
+    }
+
+    /**
+     * Sets samples mapped through a window as what this component paints,
+     * replacing any image. Only the visible part of the samples is mapped,
+     * at the size it's painted, sampling the nearest sample for each pixel,
+     * and only again after the samples, the window or what is visible
+     * change. The sizes of the component follow the size of the samples,
+     * if configured to do so.
+     * @param mappedImage what this will be used to show
+     */
+    public void setMappedImage(MappedImage mappedImage) {
+        detachAll();
+        this.mappedImage = mappedImage;
+        if (mappedImage != null) {
+            mappedImage.addListener(mappedImageListener);
+        }
+        followImageSize();
+    }
+
     @Override
     public final void setMaximumSize(Dimension maximumSize) {
         if (maximumSize == null) {
@@ -262,6 +1460,52 @@ public class ImageComponent extends JComponent {
         }
     }
 
+    /**
+     * Sets how long the scaled image must stay the same before its high
+     * quality rendering starts, when the quality is adaptive.
+     * @param delay the delay, in milliseconds
+     */
+    public void setRefineDelay(int delay) {
+        if (delay < 0) {
+            throw new IllegalArgumentException(
+             "Delay must not be negative: " + delay);
+        }
+        refineDelay = delay;
+        if (refiner != null) {
+            refiner.setDelay(delay);
+        }
+    }
+
+    /**
+     * Sets how long this component must stay hidden before the image
+     * decoded from its image source is released.
+     * @param delay the delay, in milliseconds
+     */
+    public void setReleaseDelay(int delay) {
+        if (delay < 0) {
+            throw new IllegalArgumentException(
+             "Delay must not be negative: " + delay);
+        }
+        releaseDelay = delay;
+        if (releaseTimer != null) {
+            releaseTimer.setInitialDelay(delay);
+        }
+    }
+
+    /**
+     * Sets how the image is scaled to the area of the component.
+     * Images set through {@link #setTiledImage(TiledImage)}
+     * are always painted at their original size.
+     * @param scaleMode how the image is scaled
+     */
+    public void setScaleMode(ScaleMode scaleMode) {
+        if (scaleMode == null) {
+            throw new NullPointerException("scaleMode");
+        }
+        this.scaleMode = scaleMode;
+        repaint();
+    }
+
     @Override
     public final void setSize(Dimension d) {
         // if d is null, will throw NPE, just like parent method
@@ -274,6 +1518,128 @@ public class ImageComponent extends JComponent {
         sizeAuto = false;
     }
 
+    /**
+     * Sets an image too large to be in memory as what this component paints,
+     * replacing any regular image. Only the tiles that intersect
+     * the painted area are read. The sizes of the component follow
+     * the size of the whole image, if configured to do so.
+     * @param tiledImage what this will be used to show
+     */
+    public void setTiledImage(TiledImage tiledImage) {
+        detachAll();
+        this.tiledImage = tiledImage;
+        followImageSize();
+    }
+
+    /**
+     * Sets the position of the image painted at the top left corner
+     * of the component in zoom mode.
+     * @param x horizontal position, in the image's coordinates
+     * @param y vertical position, in the image's coordinates
+     */
+    public void setViewOrigin(double x, double y) {
+        if (!(Double.isFinite(x) && Double.isFinite(y))) {
+            throw new IllegalArgumentException(
+             "View origin must be finite: " + x + ", " + y);
+        }
+        viewX = x;
+        viewY = y;
+        repaint();
+    }
+
+    /**
+     * Sets the size of the painted image relative to the image in zoom mode,
+     * keeping the view origin.
+     * @param zoom the zoom, greater than zero
+     */
+    public void setZoom(double zoom) {
+        if (!((zoom > 0) && Double.isFinite(zoom))) {
+            throw new IllegalArgumentException(
+             "Zoom must be greater than zero: " + zoom);
+        }
+        this.zoom = zoom;
+        repaint();
+    }
+
+    /**
+     * Enables or disables zooming the image with the mouse wheel, around
+     * the mouse pointer, and panning it by dragging. Only works in zoom mode.
+     * @param interactive true to enable it, false to disable it
+     */
+    public void setZoomInteractive(boolean interactive) {
+        if (interactive == (zoomInteraction != null)) {
+            return;
+        }
+        if (interactive) {
+            zoomInteraction = new ZoomInteraction();
+            addMouseListener(zoomInteraction);
+            addMouseMotionListener(zoomInteraction);
+            addMouseWheelListener(zoomInteraction);
+        } else {
+            removeMouseListener(zoomInteraction);
+            removeMouseMotionListener(zoomInteraction);
+            removeMouseWheelListener(zoomInteraction);
+            zoomInteraction = null;
+        }
+    }
+
+    /**
+     * Releases the reference to the cached image, if any.
+     */
+    private void releaseCachedImage() {
+        if (cachedImage != null) {
+            cachedImage.release();
+            cachedImage = null;
+            cachedImageLoad = null;
+        }
+    }
+
+    /**
+     * Unregisters a paint listener.
+     * @param listener the listener
+     */
+    public void removePaintListener(PaintListener listener) {
+        if (paintListeners == null) {
+            return;
+        }
+        for (int i = 0; i < paintListeners.length; i++) {
+            if (paintListeners[i] == listener) {
+                if (paintListeners.length == 1) {
+                    paintListeners = null;
+                } else {
+                    PaintListener remaining[]
+                     = new PaintListener[paintListeners.length - 1];
+                    System.arraycopy(paintListeners, 0, remaining, 0, i);
+                    System.arraycopy(paintListeners, i + 1, remaining, i,
+                     remaining.length - i);
+                    paintListeners = remaining;
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops painting anything, other than a background load that is still
+     * running, dropping the image and everything made from it.
+     */
+    private void resetImage() {
+        detachFrameStream();
+        releaseCachedImage();
+        detachMappedImage();
+        detachImageSource();
+        declaredWidth = 0;
+        declaredHeight = 0;
+        image = null;
+        imagePainted = null;
+        mipMap = null;
+        scaledImage.invalidate();
+        if (refiner != null) {
+            refiner.invalidate();
+        }
+        tiledImage = null;
+    }
+
     /**
      * Set the sizes of the component to follow the sizes of the image.
      * This is the default setup for this component.
@@ -289,6 +1655,101 @@ public class ImageComponent extends JComponent {
         sizeMaximumAuto   = true;
     }
 
+    /**
+     * Decodes the image of the image source when this component is shown,
+     * and releases it after it stays hidden for the release delay.
+     */
+    private void showingChanged(HierarchyEvent event) {
+        if ((event.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) == 0) {
+            return;
+        }
+        if (isShowing()) {
+            releaseTimer.stop();
+            decodeSource();
+        } else {
+            releaseTimer.restart();
+        }
+    }
+
+    private CompletableFuture<BufferedImage> startLoad(Object input) {
+        cancelLoad();
+        load = new ImageLoad(this, input);
+        ImageLoad.EXECUTOR.execute(load);
+        return load.future;
+    }
+
+    /**
+     * Maps a region of the image to the region of the component
+     * where it's painted, according to the scale mode.
+     * @param region a region in the image's coordinates
+     * @return the smallest region of the component that covers it
+     */
+    protected Rectangle toPlacement(Rectangle region) {
+        if (scaleMode == ScaleMode.NONE) {
+            return region;
+        }
+        Rectangle placement = getPlacement();
+        double scaleX = ((double) placement.width) / getImageWidth();
+        double scaleY = ((double) placement.height) / getImageHeight();
+        int x1 = (int) Math.floor(region.x * scaleX);
+        int y1 = (int) Math.floor(region.y * scaleY);
+        int x2 = (int) Math.ceil((region.x + region.width) * scaleX);
+        int y2 = (int) Math.ceil((region.y + region.height) * scaleY);
+        return new Rectangle(
+         placement.x + x1, placement.y + y1, x2 - x1, y2 - y1);
+    }
+
+    /**
+     * Changes the zoom while keeping the same point of the image
+     * under a point of the component, such as the mouse pointer.
+     * @param zoom the new zoom, greater than zero
+     * @param x horizontal position of the fixed point in the component
+     * @param y vertical position of the fixed point in the component
+     */
+    public void zoomAt(double zoom, int x, int y) {
+        double imageX = viewX + (x / this.zoom);
+        double imageY = viewY + (y / this.zoom);
+        setZoom(zoom);
+        setViewOrigin(imageX - (x / zoom), imageY - (y / zoom));
+    }
+
+    /**
+     * Zooms with the mouse wheel and pans by dragging.
+     */
+    private final class ZoomInteraction extends MouseAdapter {
+
+        /**
+         * Where the mouse was last pressed or dragged to.
+         */
+        private int lastX;
+
+        private int lastY;
+
+        @Override
+        public void mouseDragged(MouseEvent e) {
+            if (scaleMode == ScaleMode.ZOOM) {
+                setViewOrigin(viewX - ((e.getX() - lastX) / zoom),
+                 viewY - ((e.getY() - lastY) / zoom));
+            }
+            lastX = e.getX();
+            lastY = e.getY();
+        }
+
+        @Override
+        public void mousePressed(MouseEvent e) {
+            lastX = e.getX();
+            lastY = e.getY();
+        }
+
+        @Override
+        public void mouseWheelMoved(MouseWheelEvent e) {
+            if (scaleMode == ScaleMode.ZOOM) {
+                zoomAt(zoom * Math.pow(1.25, -e.getPreciseWheelRotation()),
+                 e.getX(), e.getY());
+            }
+        }
+    }
+
     /**
      * Constructs an empty component with size (0, 0).
      */
@@ -1,10 +1,23 @@
 package io.github.guiritter.image_component;
 
+import java.awt.AlphaComposite;
+import java.awt.Composite;
 import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Simple class to enable stacks of images in Swing applications.
@@ -27,9 +40,71 @@ import java.util.LinkedList;
  * frame.pack();
  * frame.setLocationRelativeTo(null);
  * frame.setVisible(true);</pre></blockquote>
+ * Images can also be handled as {@link #layers}, which can be hidden, faded,
+ * moved and reordered in constant time, repainting only what changed,
+ * and blended by {@link BlendMode}s other than painting over.
+ * Images of the {@link #images} list are mirrored at the bottom
+ * of the layers by {@link #update()}.
+ * When {@link #setCached(boolean) caching} is enabled, the stack is flattened
+ * into a single image which is only rebuilt after {@link #update()} or
+ * {@link #layerChanged(int)}, so that repaints cost a single draw.
+ * Changes to small regions of an image should be signaled through
+ * {@link #layerChanged(int, Rectangle)}, so that only they are repainted,
+ * or written by {@link Layer#patch(int, int, Raster) patches}.
+ * Layers hidden inside the repainted region by an opaque layer above them
+ * are not drawn.
+ * The layers under a point, such as the mouse pointer, or inside an area
+ * are found by {@link #hitTest(int, int)} and
+ * {@link #getLayersIn(Rectangle)} without reading most of their pixels.
+ * Layers of deep stacks that are hidden or rarely changed can be
+ * {@link Layer#setCompressed(boolean) compressed}, keeping only a few
+ * of their images decoded at a time.
+ * When {@link #setScaleMode(ScaleMode) scaled}, all images are scaled
+ * by the same factor as the first image, so that they remain aligned.
+ * In zoom mode, each layer, or the flattened stack when caching is enabled,
+ * has its own {@link MipMap}.
+ * Stacks can be rendered with the same pixels without a component,
+ * such as in batches on a server, by a {@link StackRenderer}.
  * @author Guilherme Alan Ritter
  */
 public final class ImageComponentMultiple extends ImageComponent{
+
+    /**
+     * Whether the stack is flattened into {@link #composite} before painting.
+     */
+    private boolean cached = false;
+
+    /**
+     * How many times {@link #composite} was painted without being rebuilt.
+     */
+    private long cacheHitCount = 0;
+
+    /**
+     * How many times {@link #composite} was rebuilt.
+     */
+    private long cacheRebuildCount = 0;
+
+    /**
+     * The flattened stack. Only used when {@link #cached} is true.
+     */
+    private BufferedImage composite = null;
+
+    /**
+     * Whether {@link #composite} reflects the current stack.
+     */
+    private boolean compositeValid = false;
+
+    /**
+     * Smaller copies of {@link #composite}, used in zoom mode.
+     */
+    private MipMap compositeMipMap = null;
+
+    /**
+     * Flattens the stack into {@link #composite} in parallel,
+     * or null to flatten it by drawing each layer.
+     */
+    private StackCompositor compositor = null;
+
     /**
      * Image stack. The user can modify this list freely, but must run the
      * {@link #update()} method afterwards to ensure expected behaviour. Applying
@@ -38,61 +113,588 @@ public final class ImageComponentMultiple extends ImageComponent{
      */
     public final LinkedList<BufferedImage> images = new LinkedList<>();
 
+    /**
+     * Layer stack. Each image of {@link #images} has a layer, kept
+     * at the bottom of the stack in the same order as the list by
+     * {@link #update()}. Other layers can be added directly to the stack,
+     * and changes to the stack or its layers are repainted immediately,
+     * without the need for {@link #update()}.
+     */
+    public final LayerStack layers = new LayerStack();
+
+    /**
+     * Layers that mirror {@link #images}, in the same order.
+     */
+    private final ArrayList<Layer> listedLayers = new ArrayList<>();
+
+    /**
+     * The last scaled copy of {@link #composite}.
+     */
+    private final ScaledImage scaledComposite = new ScaledImage();
+
     private static final long serialVersionUID = -7231014528527525725L;
 
+    /**
+     * The size of {@link #sizedLayer} when the sizes were last followed.
+     */
+    private int sizedHeight = 0;
+
+    /**
+     * The bottom layer when the sizes were last followed. Compressed
+     * layers decode their image again when needed, so it's the layer
+     * that identifies what the sizes follow, rather than its image.
+     */
+    private Layer sizedLayer = null;
+
+    private int sizedWidth = 0;
+
+    /**
+     * Whether {@link #update()} is changing {@link #layers},
+     * in which case the changes are not handled one by one.
+     */
+    private boolean updating = false;
+
+    {
+        layers.addLayerListener(this::layerStackChanged);
+    }
+
+    /**
+     * Draws the visible layers, skipping those hidden inside the clip
+     * by an opaque layer above them.
+     * @param g where to draw
+     * @param placement where the first image is painted,
+     * or null to draw at the original size
+     * @return how many layers were drawn
+     */
+    private int drawLayers(Graphics2D g, Rectangle placement) {
+        return drawLayers(g, layers, placement, layer -> {
+            if (placement == null) {
+                drawClipped(g, getPaintedImage(layer),
+                 layer.getX(), layer.getY());
+            } else {
+                drawScaled(g, getPaintedImage(layer), layer.scaled,
+                 getMipMap(layer), placement, layer.getX(), layer.getY());
+            }
+        });
+    }
+
+    /**
+     * Draws the visible layers of a stack, skipping those hidden inside
+     * the clip by an opaque layer above them. Shared with
+     * {@link StackRenderer}, so that both draw the same pixels.
+     * @param g where to draw
+     * @param layers the stack to be drawn
+     * @param placement where the first image is painted,
+     * or null to draw at the original size
+     * @param painter draws a layer, once its composite is set
+     * @return how many layers were drawn
+     */
+    static int drawLayers(Graphics2D g, LayerStack layers,
+     Rectangle placement, Consumer<Layer> painter) {
+        Composite previous = g.getComposite();
+        int drawn = 0;
+        Layer layer = layers.getBottom();
+        Rectangle clip = g.getClipBounds();
+        if ((clip != null) && (!clip.isEmpty())) {
+            for (Layer top = layers.getTop(); top != null;
+             top = top.getBelow()) {
+                if (top.hides(getDrawnBounds(layers, top, placement), clip)) {
+                    layer = top;
+                    break;
+                }
+            }
+        }
+        for (; layer != null; layer = layer.getAbove()) {
+            if ((!layer.isVisible()) || (layer.getOpacity() == 0f)) {
+                continue;
+            }
+            if (layer.getBlendMode() != BlendMode.NORMAL) {
+                g.setComposite(BlendComposite.getInstance(
+                 layer.getBlendMode(), layer.getOpacity()));
+            } else {
+                g.setComposite((layer.getOpacity() < 1f)
+                 ? AlphaComposite.SrcOver.derive(layer.getOpacity())
+                 : AlphaComposite.SrcOver);
+            }
+            painter.accept(layer);
+            drawn++;
+        }
+        g.setComposite(previous);
+        return drawn;
+    }
+
+    /**
+     * Draws an image of the stack, or the flattened stack,
+     * scaled by the same factor as the first image.
+     * @param g where to draw
+     * @param image what to draw
+     * @param scaledImage the last scaled copy of the image
+     * @param mipMap copies of the image, used instead in zoom mode
+     * @param placement where the first image is painted
+     * @param x horizontal position of the image, before scaling
+     * @param y vertical position of the image, before scaling
+     */
+    private void drawScaled(Graphics g, BufferedImage image,
+     ScaledImage scaledImage, MipMap mipMap, Rectangle placement,
+     int x, int y) {
+        if (placement.isEmpty()) {
+            return;
+        }
+        Rectangle drawn = toDrawn(placement,
+         getImageWidth(), getImageHeight(),
+         new Rectangle(x, y, image.getWidth(), image.getHeight()));
+        if (getScaleMode() == ScaleMode.ZOOM) {
+            drawZoomed(g, mipMap, drawn);
+        } else {
+            drawClipped(g, scaledImage.get(image, drawn.width, drawn.height,
+             getInterpolation()), drawn.x, drawn.y);
+        }
+    }
+
+    /**
+     * @return how many repaints used the flattened stack without rebuilding it
+     */
+    public long getCacheHitCount() {
+        return cacheHitCount;
+    }
+
+    /**
+     * @return how many times the flattened stack was rebuilt
+     */
+    public long getCacheRebuildCount() {
+        return cacheRebuildCount;
+    }
+
+    /**
+     * @return what flattens the stack when caching is enabled,
+     * or null if the stack is flattened by drawing each layer
+     */
+    public StackCompositor getCompositor() {
+        return compositor;
+    }
+
+    /**
+     * @return where a layer is drawn, relative to the component
+     */
+    private static Rectangle getDrawnBounds(
+     LayerStack layers, Layer layer, Rectangle placement) {
+        if (placement == null) {
+            return layer.getBounds();
+        }
+        Rectangle first = layers.getBottom().getBounds();
+        return toDrawn(placement, first.width, first.height,
+         layer.getBounds());
+    }
+
+    /**
+     * Finds the painted layers that have pixels that are not fully
+     * transparent inside an area of the component, as by
+     * {@link LayerStack#getLayersIn(Rectangle)}.
+     * @param area the area, relative to the component
+     * @return the layers, from the bottom to the top
+     */
+    public List<Layer> getLayersIn(Rectangle area) {
+        if (isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (getScaleMode() == ScaleMode.NONE) {
+            return layers.getLayersIn(area);
+        }
+        Rectangle placement = getPlacement();
+        if (placement.isEmpty()) {
+            return new ArrayList<>();
+        }
+        double scaleX = ((double) placement.width) / getImageWidth();
+        double scaleY = ((double) placement.height) / getImageHeight();
+        int x1 = (int) Math.floor((area.x - placement.x) / scaleX);
+        int y1 = (int) Math.floor((area.y - placement.y) / scaleY);
+        int x2 = (int) Math.ceil(
+         (area.x + area.width - placement.x) / scaleX);
+        int y2 = (int) Math.ceil(
+         (area.y + area.height - placement.y) / scaleY);
+        return layers.getLayersIn(new Rectangle(x1, y1, x2 - x1, y2 - y1));
+    }
+
+    /**
+     * @return the height of the first image, or zero if the stack is empty
+     */
     @Override
-    public boolean isEmpty() {
-        return images.isEmpty();
+    protected int getImageHeight() {
+        return isEmpty() ? 0 : layers.getBottom().getBounds().height;
     }
 
+    /**
+     * @return the width of the first image, or zero if the stack is empty
+     */
     @Override
-    protected void paintComponent (Graphics g) {
-        super.paintComponent(g);
-        for (BufferedImage bI : images) {
-            g.drawImage(bI, 0, 0, null);
+    protected int getImageWidth() {
+        return isEmpty() ? 0 : layers.getBottom().getBounds().width;
+    }
+
+    /**
+     * @return copies of what is painted for a layer for zoom mode,
+     * created when first needed
+     */
+    private MipMap getMipMap(Layer layer) {
+        BufferedImage painted = getPaintedImage(layer);
+        if ((layer.mipMap == null) || (layer.mipMap.source != painted)) {
+            layer.mipMap = new MipMap(painted, this::repaint);
         }
+        return layer.mipMap;
     }
 
-    @Override
-    protected void setAutoSize() {
+    /**
+     * @return what is actually painted for a layer
+     */
+    private BufferedImage getPaintedImage(Layer layer) {
+        if (!isFastFormat()) {
+            return layer.getImage();
+        }
+        if (layer.painted == null) {
+            layer.painted = toFastFormat(layer.getImage());
+        }
+        return layer.painted;
+    }
+
+    /**
+     * Whether the stack is flattened into a single image before painting.
+     * @return true if caching is enabled, false otherwise
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * Finds the topmost painted layer that has a pixel that is not fully
+     * transparent under a point of the component, such as the mouse pointer,
+     * as by {@link LayerStack#hitTest(int, int)}.
+     * @param x horizontal position, relative to the component
+     * @param y vertical position, relative to the component
+     * @return the layer and its pixel, or null if no layer was hit
+     */
+    public LayerHit hitTest(int x, int y) {
         if (isEmpty()) {
-            size.setSize(0, 0);
-        } else {
-            size.setSize(
-             images.getFirst().getWidth(), images.getFirst().getHeight());
+            return null;
+        }
+        if (getScaleMode() == ScaleMode.NONE) {
+            return layers.hitTest(x, y);
         }
+        Rectangle placement = getPlacement();
+        if (placement.isEmpty()) {
+            return null;
+        }
+        return layers.hitTest(
+         (int) Math.floor((x - placement.x)
+          * ((double) getImageWidth()) / placement.width),
+         (int) Math.floor((y - placement.y)
+          * ((double) getImageHeight()) / placement.height));
     }
 
     @Override
-    protected void setAutoSizeMaximum() {
+    public boolean isEmpty() {
+        return layers.isEmpty();
+    }
+
+    /**
+     * @return whether the sizes still follow the bottom layer
+     */
+    private boolean isSized() {
         if (isEmpty()) {
-            sizeMaximum.setSize(0, 0);
-        } else {
-            sizeMaximum.setSize(
-             images.getFirst().getWidth(), images.getFirst().getHeight());
+            return sizedLayer == null;
         }
+        Rectangle bounds = layers.getBottom().getBounds();
+        return (layers.getBottom() == sizedLayer)
+         && (bounds.width == sizedWidth) && (bounds.height == sizedHeight);
+    }
+
+    /**
+     * Signals that the pixels of one image of the stack have changed,
+     * without any change to the stack itself. When caching is enabled,
+     * the area of the image is blended again.
+     * Changes to the stack itself still require {@link #update()}.
+     * @param index position of the changed image in the stack
+     */
+    public void layerChanged(int index) {
+        layerChanged(index, null);
+    }
+
+    /**
+     * Signals that the pixels inside a region of one image of the stack
+     * have changed, without any change to the stack itself. Only that region
+     * is repainted and, when caching is enabled, recomposited.
+     * Changes to the stack itself still require {@link #update()}.
+     * Prefer {@link Layer#changed(Rectangle)} when holding the layer,
+     * since finding a layer by its position takes linear time.
+     * @param index position of the changed image in the stack
+     * @param region the changed region, in the image's coordinates,
+     * or null if the whole image changed
+     */
+    public void layerChanged(int index, Rectangle region) {
+        layers.get(index).changed(region);
+    }
+
+    /**
+     * Handles changes to {@link #layers}, recompositing and repainting
+     * only the changed region when possible.
+     */
+    private void layerStackChanged(
+     LayerStack stack, Layer layer, Rectangle region) {
+        if (updating) {
+            return;
+        }
+        if (!isSized()) {
+            setSized();
+            compositeValid = false;
+            followImageSize();
+            return;
+        }
+        if ((region == null) || (compositeValid && (composite != null)
+         && (!new Rectangle(0, 0, composite.getWidth(),
+          composite.getHeight()).contains(region)))) {
+            compositeValid = false;
+            repaint();
+            return;
+        }
+        if (compositeValid && (composite != null)) {
+            recomposite(region);
+        }
+        repaint(toPlacement(region));
     }
 
     @Override
-    protected void setAutoSizeMinimum() {
-        if (isEmpty()) {
-            sizeMinimum.setSize(0, 0);
+    protected int paintImage(Graphics g) {
+        boolean scaled = getScaleMode() != ScaleMode.NONE;
+        Rectangle placement = scaled ? getPlacement() : null;
+        if (cached) {
+            if (compositeValid) {
+                cacheHitCount++;
+            } else {
+                rebuildComposite();
+            }
+            if (composite == null) {
+                return 0;
+            }
+            if (scaled) {
+                if ((compositeMipMap == null)
+                 || (compositeMipMap.source != composite)) {
+                    compositeMipMap = new MipMap(composite, this::repaint);
+                }
+                drawScaled(g, composite, scaledComposite, compositeMipMap,
+                 placement, 0, 0);
+            } else {
+                drawClipped(g, composite, 0, 0);
+            }
+            return 1;
+        }
+        return drawLayers((Graphics2D) g, placement);
+    }
+
+    /**
+     * Blends the whole stack into {@link #composite}, reusing it
+     * if its size still fits the stack.
+     */
+    private void rebuildComposite() {
+        int width = 0;
+        int height = 0;
+        for (Layer layer : layers) {
+            Rectangle bounds = layer.getBounds();
+            width = Math.max(width, bounds.x + bounds.width);
+            height = Math.max(height, bounds.y + bounds.height);
+        }
+        if ((width <= 0) || (height <= 0)) {
+            composite = null;
+        } else if (compositor != null) {
+            if ((composite == null)
+             || (composite.getWidth() != width)
+             || (composite.getHeight() != height)) {
+                composite = new BufferedImage(
+                 width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+            }
+            compositor.composite(layers, composite);
         } else {
-            sizeMinimum.setSize(
-             images.getFirst().getWidth(), images.getFirst().getHeight());
+            Graphics2D g;
+            if ((composite == null)
+             || (composite.getWidth() != width)
+             || (composite.getHeight() != height)) {
+                composite = new BufferedImage(
+                 width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+                g = composite.createGraphics();
+            } else {
+                g = composite.createGraphics();
+                g.setComposite(AlphaComposite.Clear);
+                g.fillRect(0, 0, width, height);
+                g.setComposite(AlphaComposite.SrcOver);
+            }
+            // so that layers hidden by opaque ones are skipped
+            g.clipRect(0, 0, width, height);
+            drawLayers(g, null);
+            g.dispose();
         }
+        scaledComposite.invalidate();
+        if (compositeMipMap != null) {
+            compositeMipMap.invalidate();
+        }
+        compositeValid = true;
+        cacheRebuildCount++;
+    }
+
+    /**
+     * Blends the stack again only inside a region of {@link #composite}.
+     * @param region the region to blend, inside the flattened stack
+     */
+    private void recomposite(Rectangle region) {
+        scaledComposite.invalidate();
+        if (compositeMipMap != null) {
+            compositeMipMap.invalidate();
+        }
+        if (compositor != null) {
+            compositor.composite(layers, composite, region);
+            return;
+        }
+        Graphics2D g = composite.createGraphics();
+        g.clip(region);
+        g.setComposite(AlphaComposite.Clear);
+        g.fill(region);
+        g.setComposite(AlphaComposite.SrcOver);
+        drawLayers(g, null);
+        g.dispose();
+    }
+
+    /**
+     * Enables or disables flattening the stack into a single image
+     * before painting. Disabling it releases the flattened image.
+     * @param cached true to enable caching, false to disable it
+     */
+    public void setCached(boolean cached) {
+        this.cached = cached;
+        composite = null;
+        compositeValid = false;
+        repaint();
+    }
+
+    /**
+     * Sets what flattens the stack when caching is enabled. A compositor
+     * blends the layers in parallel, directly on their pixels, with the same
+     * result as drawing them, which pays off for large and deep stacks.
+     * @param compositor the compositor, or null to flatten the stack
+     * by drawing each layer
+     */
+    public void setCompositor(StackCompositor compositor) {
+        this.compositor = compositor;
+        compositeValid = false;
+        repaint();
     }
 
     @Override
-    protected void setAutoSizePreferred() {
-        if (isEmpty()) {
-            sizePreferred.setSize(0, 0);
-        } else {
-            sizePreferred.setSize(
-             images.getFirst().getWidth(), images.getFirst().getHeight());
+    public void setFastFormat(boolean fastFormat) {
+        super.setFastFormat(fastFormat);
+        compositeValid = false;
+        for (Layer layer : layers) {
+            layer.painted = null;
+            layer.mipMap = null;
+            layer.scaled.invalidate();
         }
     }
 
+    /**
+     * Records the bottom layer and its size as what the sizes follow.
+     */
+    private void setSized() {
+        sizedLayer = isEmpty() ? null : layers.getBottom();
+        Rectangle bounds = (sizedLayer == null)
+         ? new Rectangle() : sizedLayer.getBounds();
+        sizedWidth = bounds.width;
+        sizedHeight = bounds.height;
+    }
+
+    /**
+     * @deprecated This method was only valid for single image components.
+     * Calling this method throws an
+     * {@link java.lang.UnsupportedOperationException}.
+     */
+    @Deprecated
+    @Override
+    public CompletableFuture<BufferedImage> loadImage(File file) {
+        throw new UnsupportedOperationException(
+         "This method was only valid for single image components.");
+    }
+
+    /**
+     * @deprecated This method was only valid for single image components.
+     * Calling this method throws an
+     * {@link java.lang.UnsupportedOperationException}.
+     */
+    @Deprecated
+    @Override
+    public CompletableFuture<BufferedImage> loadImage(URL url) {
+        throw new UnsupportedOperationException(
+         "This method was only valid for single image components.");
+    }
+
+    /**
+     * @deprecated This method was only valid for single image components.
+     * Patch the layers through
+     * {@link Layer#patch(int, int, int, int, int[], int, int)} instead.
+     * Calling this method throws an
+     * {@link java.lang.UnsupportedOperationException}.
+     */
+    @Deprecated
+    @Override
+    public void patch(int x, int y, int width, int height,
+     int pixels[], int offset, int scanSize) {
+        throw new UnsupportedOperationException(
+         "This method was only valid for single image components.");
+    }
+
+    /**
+     * @deprecated This method was only valid for single image components.
+     * Patch the layers through {@link Layer#patch(int, int, Raster)} instead.
+     * Calling this method throws an
+     * {@link java.lang.UnsupportedOperationException}.
+     */
+    @Deprecated
+    @Override
+    public void patch(int x, int y, Raster pixels) {
+        throw new UnsupportedOperationException(
+         "This method was only valid for single image components.");
+    }
+
+    /**
+     * @deprecated This method was only valid for single image components.
+     * Calling this method throws an
+     * {@link java.lang.UnsupportedOperationException}.
+     */
+    @Deprecated
+    @Override
+    public void setAdaptiveQuality(boolean adaptive) {
+        throw new UnsupportedOperationException(
+         "This method was only valid for single image components.");
+    }
+
+    /**
+     * @deprecated This method was only valid for single image components.
+     * Calling this method throws an
+     * {@link java.lang.UnsupportedOperationException}.
+     */
+    @Deprecated
+    @Override
+    public void setCachedImage(CachedImage cachedImage) {
+        throw new UnsupportedOperationException(
+         "This method was only valid for single image components.");
+    }
+
+    /**
+     * @deprecated This method was only valid for single image components.
+     * Calling this method throws an
+     * {@link java.lang.UnsupportedOperationException}.
+     */
+    @Deprecated
+    @Override
+    public void setFrameStream(FrameStream frameStream) {
+        throw new UnsupportedOperationException(
+         "This method was only valid for single image components.");
+    }
+
     /**
      * @deprecated This method was only valid for single image components.
      * Calling this method throws an
@@ -105,12 +707,113 @@ public final class ImageComponentMultiple extends ImageComponent{
          "This method was only valid for single image components.");
     }
 
+    /**
+     * @deprecated This method was only valid for single image components.
+     * Calling this method throws an
+     * {@link java.lang.UnsupportedOperationException}.
+     */
+    @Deprecated
+    @Override
+    public void setImageSource(ImageSource source, int width, int height) {
+        throw new UnsupportedOperationException(
+         "This method was only valid for single image components.");
+    }
+
+    /**
+     * @deprecated This method was only valid for single image components.
+     * Calling this method throws an
+     * {@link java.lang.UnsupportedOperationException}.
+     */
+    @Deprecated
+    @Override
+    public void setMappedImage(MappedImage mappedImage) {
+        throw new UnsupportedOperationException(
+         "This method was only valid for single image components.");
+    }
+
+    /**
+     * @deprecated This method was only valid for single image components.
+     * Calling this method throws an
+     * {@link java.lang.UnsupportedOperationException}.
+     */
+    @Deprecated
+    @Override
+    public void setTiledImage(TiledImage tiledImage) {
+        throw new UnsupportedOperationException(
+         "This method was only valid for single image components.");
+    }
+
+    /**
+     * Maps the bounds of an image of the stack to where it's drawn when
+     * scaled by the same factor as the first image.
+     * @param placement where the first image is painted
+     * @param imageWidth width of the first image
+     * @param imageHeight height of the first image
+     * @param bounds position and size of the image, before scaling
+     * @return position and size of the drawn image, relative to the component
+     */
+    static Rectangle toDrawn(Rectangle placement,
+     int imageWidth, int imageHeight, Rectangle bounds) {
+        double scaleX = ((double) placement.width) / imageWidth;
+        double scaleY = ((double) placement.height) / imageHeight;
+        return new Rectangle(
+         placement.x + (int) Math.round(bounds.x * scaleX),
+         placement.y + (int) Math.round(bounds.y * scaleY),
+         Math.max(1, (int) Math.round(bounds.width * scaleX)),
+         Math.max(1, (int) Math.round(bounds.height * scaleY)));
+    }
+
+    /**
+     * Must be called after changes to {@link #images}. Mirrors the list
+     * at the bottom of {@link #layers}, keeping the layers of images that
+     * remain in the list, updates the sizes that follow the first image
+     * and discards the flattened stack.
+     */
     public void update() {
-        if (sizeAuto         ) setAutoSize();
-        if (sizeMinimumAuto  ) setAutoSizeMinimum();
-        if (sizePreferredAuto) setAutoSizePreferred();
-        if (sizeMaximumAuto  ) setAutoSizeMaximum();
-        repaint();
+        long start = isInstrumented() ? System.nanoTime() : 0;
+        updating = true;
+        try {
+            IdentityHashMap<BufferedImage, ArrayDeque<Layer>> reusable
+             = new IdentityHashMap<>();
+            for (Layer layer : listedLayers) {
+                if (layer.getStack() == layers) {
+                    // released images are only kept if held by the list
+                    reusable.computeIfAbsent(layer.peekImage(),
+                     key -> new ArrayDeque<>()).add(layer);
+                }
+            }
+            listedLayers.clear();
+            Layer below = null;
+            for (BufferedImage bI : images) {
+                ArrayDeque<Layer> candidates = reusable.get(bI);
+                Layer layer = (candidates == null) ? null : candidates.poll();
+                if (layer == null) {
+                    layer = layers.add(bI);
+                }
+                layers.moveAbove(layer, below);
+                // the pixels of listed images may have changed
+                layer.opaque = null;
+                layer.coverage = null;
+                layer.painted = null;
+                layer.scaled.invalidate();
+                layer.mipMap = null;
+                listedLayers.add(layer);
+                below = layer;
+            }
+            for (ArrayDeque<Layer> unused : reusable.values()) {
+                for (Layer layer : unused) {
+                    layers.remove(layer);
+                }
+            }
+        } finally {
+            updating = false;
+        }
+        setSized();
+        compositeValid = false;
+        followImageSize();
+        if (isInstrumented()) {
+            fireImageChanged(start);
+        }
     }
 
     /**
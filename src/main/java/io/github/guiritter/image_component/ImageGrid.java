@@ -0,0 +1,333 @@
+package io.github.guiritter.image_component;
+
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Shows a collection of images of any size as a grid of thumbnails of the
+ * same size, meant to be placed in a {@link javax.swing.JScrollPane}.
+ * Only the cells inside the visible area, plus a margin of rows above and
+ * below it, exist as {@link ImageComponent}s, which are recycled as the
+ * grid scrolls. Thumbnails are read and scaled in the background, as
+ * {@link ImageSource#fitted(ImageSource, int, int) fitted} images held by an
+ * {@link ImageCache}, so that each is only read again after being evicted.
+ * The number of images only affects the height of the grid.
+ * Usage example:<blockquote><pre> ImageGrid grid = new ImageGrid(128, 128);
+ * grid.setItems(sources);
+ * frame.getContentPane().add(new JScrollPane(grid));</pre></blockquote>
+ * This class is not synchronized.
+ * @author Guilherme Alan Ritter
+ */
+public class ImageGrid extends JComponent implements Scrollable {
+
+    public final ImageCache cache;
+
+    /**
+     * Cells showing an item, keyed by the item's index.
+     */
+    private final HashMap<Integer, ImageComponent> cells = new HashMap<>();
+
+    private final int cellHeight;
+
+    private final int cellWidth;
+
+    /**
+     * Cells not showing any item, ready to be reused.
+     */
+    private final ArrayDeque<ImageComponent> freeCells = new ArrayDeque<>();
+
+    /**
+     * Space between cells and around the grid.
+     */
+    private int gap = 4;
+
+    private ArrayList<ImageSource> items = new ArrayList<>();
+
+    /**
+     * How many rows above and below the visible area have cells.
+     */
+    private int prefetchRows = 2;
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Updates the cells when the grid scrolls.
+     */
+    private final ChangeListener viewportListener = event -> updateCells();
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        Container parent = getParent();
+        if (parent instanceof JViewport) {
+            ((JViewport) parent).addChangeListener(viewportListener);
+        }
+    }
+
+    @Override
+    public void doLayout() {
+        updateCells();
+    }
+
+    /**
+     * @return how many cells exist, showing items or ready to be reused
+     */
+    public int getCellCount() {
+        return cells.size() + freeCells.size();
+    }
+
+    /**
+     * @return height of every cell
+     */
+    public int getCellHeight() {
+        return cellHeight;
+    }
+
+    /**
+     * @return width of every cell
+     */
+    public int getCellWidth() {
+        return cellWidth;
+    }
+
+    /**
+     * @return how many cells fit side by side in the current width
+     */
+    public int getColumnCount() {
+        int width = getWidth();
+        if (width <= 0) {
+            Container parent = getParent();
+            width = (parent instanceof JViewport) ? parent.getWidth() : 0;
+        }
+        return Math.max(1, (width - gap) / (cellWidth + gap));
+    }
+
+    /**
+     * @return space between cells and around the grid
+     */
+    public int getGap() {
+        return gap;
+    }
+
+    /**
+     * Returns the index of the item whose cell contains a point.
+     * @param x horizontal position, relative to the grid
+     * @param y vertical position, relative to the grid
+     * @return the index of the item, or -1 if the point isn't over a cell
+     */
+    public int getIndexAt(int x, int y) {
+        if ((x < gap) || (y < gap)) {
+            return -1;
+        }
+        int column = (x - gap) / (cellWidth + gap);
+        int row = (y - gap) / (cellHeight + gap);
+        if ((column >= getColumnCount())
+         || (((x - gap) % (cellWidth + gap)) >= cellWidth)
+         || (((y - gap) % (cellHeight + gap)) >= cellHeight)) {
+            return -1;
+        }
+        int index = (row * getColumnCount()) + column;
+        return (index < items.size()) ? index : -1;
+    }
+
+    /**
+     * @return the number of images in the grid
+     */
+    public int getItemCount() {
+        return items.size();
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        int columns = getColumnCount();
+        int rows = (items.size() + columns - 1) / columns;
+        return new Dimension(gap + (columns * (cellWidth + gap)),
+         gap + (rows * (cellHeight + gap)));
+    }
+
+    /**
+     * @return how many rows above and below the visible area have cells
+     */
+    public int getPrefetchRows() {
+        return prefetchRows;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(
+     Rectangle visibleRect, int orientation, int direction) {
+        return (orientation == SwingConstants.VERTICAL)
+         ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(
+     Rectangle visibleRect, int orientation, int direction) {
+        return (orientation == SwingConstants.VERTICAL)
+         ? (cellHeight + gap) : (cellWidth + gap);
+    }
+
+    @Override
+    public void removeNotify() {
+        Container parent = getParent();
+        if (parent instanceof JViewport) {
+            ((JViewport) parent).removeChangeListener(viewportListener);
+        }
+        super.removeNotify();
+    }
+
+    /**
+     * Sets the space between cells and around the grid.
+     * @param gap the space, in pixels
+     */
+    public void setGap(int gap) {
+        if (gap < 0) {
+            throw new IllegalArgumentException(
+             "Gap must not be negative: " + gap);
+        }
+        this.gap = gap;
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Sets the images shown by the grid, replacing the current ones.
+     * The collection is copied, so later changes to it are not shown.
+     * @param items where each image is read from
+     */
+    public void setItems(Collection<? extends ImageSource> items) {
+        for (ImageComponent cell : cells.values()) {
+            cell.setCachedImage(null);
+            cell.setVisible(false);
+            freeCells.add(cell);
+        }
+        cells.clear();
+        this.items = new ArrayList<>(items);
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Sets how many rows above and below the visible area have cells,
+     * so that their images are read before they're scrolled into view.
+     * @param prefetchRows how many rows
+     */
+    public void setPrefetchRows(int prefetchRows) {
+        if (prefetchRows < 0) {
+            throw new IllegalArgumentException(
+             "Prefetch rows must not be negative: " + prefetchRows);
+        }
+        this.prefetchRows = prefetchRows;
+        updateCells();
+    }
+
+    /**
+     * Recycles the cells of items that left the visible area and its
+     * margin, and shows the items that entered it.
+     */
+    private void updateCells() {
+        Rectangle visible = getVisibleRect();
+        int columns = getColumnCount();
+        int rowHeight = cellHeight + gap;
+        int first = 0;
+        int last = -1;
+        if ((!visible.isEmpty()) && (!items.isEmpty())) {
+            int rowFirst = Math.max(0,
+             ((visible.y - gap) / rowHeight) - prefetchRows);
+            int rowLast = ((visible.y + visible.height - gap) / rowHeight)
+             + prefetchRows;
+            first = rowFirst * columns;
+            last = Math.min(items.size() - 1,
+             (((rowLast + 1) * columns) - 1));
+        }
+        Iterator<Map.Entry<Integer, ImageComponent>> iterator
+         = cells.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, ImageComponent> entry = iterator.next();
+            int index = entry.getKey();
+            if ((index < first) || (index > last)) {
+                ImageComponent cell = entry.getValue();
+                cell.setCachedImage(null);
+                cell.setVisible(false);
+                freeCells.add(cell);
+                iterator.remove();
+            }
+        }
+        for (int index = first; index <= last; index++) {
+            ImageComponent cell = cells.get(index);
+            if (cell == null) {
+                cell = freeCells.poll();
+                if (cell == null) {
+                    cell = new ImageComponent();
+                    cell.setScaleMode(ScaleMode.FIT);
+                    cell.setSize(cellWidth, cellHeight);
+                    add(cell);
+                }
+                cell.setCachedImage(cache.acquire(ImageSource.fitted(
+                 items.get(index), cellWidth, cellHeight)));
+                cell.setVisible(true);
+                cells.put(index, cell);
+            }
+            cell.setBounds(gap + ((index % columns) * (cellWidth + gap)),
+             gap + ((index / columns) * rowHeight), cellWidth, cellHeight);
+        }
+    }
+
+    /**
+     * Creates an empty grid whose thumbnails are held by the
+     * {@link ImageCache#getShared() shared} cache.
+     * @param cellWidth width of every cell
+     * @param cellHeight height of every cell
+     */
+    public ImageGrid(int cellWidth, int cellHeight) {
+        this(cellWidth, cellHeight, ImageCache.getShared());
+    }
+
+    /**
+     * Creates an empty grid.
+     * @param cellWidth width of every cell
+     * @param cellHeight height of every cell
+     * @param cache holds the thumbnails
+     */
+    public ImageGrid(int cellWidth, int cellHeight, ImageCache cache) {
+        if ((cellWidth <= 0) || (cellHeight <= 0)) {
+            throw new IllegalArgumentException(
+             "Cell size must be positive: " + cellWidth + "x" + cellHeight);
+        }
+        if (cache == null) {
+            throw new NullPointerException("cache");
+        }
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.cache = cache;
+    }
+}
@@ -0,0 +1,151 @@
+package io.github.guiritter.image_component;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.SwingUtilities;
+
+/**
+ * Decodes an image for an {@link ImageComponent} in the background.
+ * The size read from the header is handed to the component first,
+ * then a subsampled preview, then the full image, each on the event
+ * dispatch thread. The component ignores whatever arrives from
+ * a load that is no longer its current one.
+ * @author Guilherme Alan Ritter
+ */
+final class ImageLoad implements Runnable {
+
+    /**
+     * Shared by all components, with daemon threads so that
+     * it doesn't keep the application alive.
+     */
+    static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+     Math.max(1, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+        Thread thread = new Thread(runnable, "ImageComponent loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Images whose largest side is at most this many pixels
+     * get no preview.
+     */
+    static final int PREVIEW_SIDE = 512;
+
+    private final ImageComponent component;
+
+    final CompletableFuture<BufferedImage> future = new CompletableFuture<>();
+
+    /**
+     * A {@link File} or a {@link URL}.
+     */
+    private final Object input;
+
+    /**
+     * The reader currently decoding, so that it can be aborted.
+     */
+    private volatile ImageReader reader = null;
+
+    /**
+     * Stops decoding. The future is completed exceptionally.
+     */
+    void cancel() {
+        future.cancel(true);
+        ImageReader current = reader;
+        if (current != null) {
+            current.abort();
+        }
+    }
+
+    private void checkCancelled() {
+        if (future.isCancelled()) {
+            throw new CancellationException();
+        }
+    }
+
+    @Override
+    public void run() {
+        if (future.isCancelled()) {
+            return;
+        }
+        InputStream stream = null;
+        ImageInputStream imageStream = null;
+        try {
+            if (input instanceof URL) {
+                stream = ((URL) input).openStream();
+                imageStream = ImageIO.createImageInputStream(stream);
+            } else {
+                imageStream = ImageIO.createImageInputStream(input);
+            }
+            if (imageStream == null) {
+                throw new IOException("Can't read " + input);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageStream);
+            if (!readers.hasNext()) {
+                throw new IOException("No reader for " + input);
+            }
+            ImageReader current = readers.next();
+            reader = current;
+            try {
+                current.setInput(imageStream, true, true);
+                final int width = current.getWidth(0);
+                final int height = current.getHeight(0);
+                checkCancelled();
+                SwingUtilities.invokeLater(
+                 () -> component.loadedSize(this, width, height));
+                int subsampling = Math.max(width, height) / PREVIEW_SIDE;
+                if (subsampling > 1) {
+                    ImageReadParam param = current.getDefaultReadParam();
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                    final BufferedImage preview = current.read(0, param);
+                    checkCancelled();
+                    SwingUtilities.invokeLater(
+                     () -> component.loadedPreview(this, preview));
+                }
+                final BufferedImage image = current.read(0);
+                checkCancelled();
+                SwingUtilities.invokeLater(() -> {
+                    component.loaded(this, image);
+                    future.complete(image);
+                });
+            } finally {
+                reader = null;
+                current.dispose();
+            }
+        } catch (Throwable ex) {
+            // completed on the event dispatch thread, like on success
+            SwingUtilities.invokeLater(() -> future.completeExceptionally(ex));
+        } finally {
+            try {
+                if (imageStream != null) {
+                    imageStream.close();
+                }
+                if (stream != null) {
+                    stream.close();
+                }
+            } catch (IOException ex) {
+                // the image was read already, or the error was reported
+            }
+        }
+    }
+
+    /**
+     * @param component the component that will show the image
+     * @param input a {@link File} or a {@link URL}
+     */
+    ImageLoad(ImageComponent component, Object input) {
+        this.component = component;
+        this.input = input;
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.guiritter.image_component;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Something that decodes or creates an image whenever asked, so that the
+ * image can be discarded and read again later. Sources are used as keys
+ * by {@link ImageCache}, so sources of the same image should be equal;
+ * the sources created by the static methods of this interface are.
+ * Implementations must allow images to be read from any thread.
+ * @author Guilherme Alan Ritter
+ */
+public interface ImageSource {
+
+    /**
+     * Creates a source of a copy of the image of another source scaled,
+     * keeping its aspect ratio, to the largest size that fits inside a box,
+     * the same as painted by {@link ScaleMode#FIT}, such as a thumbnail.
+     * @param source the source of the image to be scaled
+     * @param width width of the box
+     * @param height height of the box
+     * @return the source, equal to other sources
+     * of the same source and box
+     */
+    static ImageSource fitted(ImageSource source, int width, int height) {
+        return new ImageSources.ScaledSource(source, width, height, true);
+    }
+
+    /**
+     * Creates a source that decodes an image file.
+     * @param file the image file
+     * @return the source, equal to other sources of the same file
+     */
+    static ImageSource of(File file) {
+        return new ImageSources.FileSource(file);
+    }
+
+    /**
+     * Creates a source that decodes an image read from a URL.
+     * @param url where the image is read from
+     * @return the source, equal to other sources of the same URL
+     */
+    static ImageSource of(URL url) {
+        return new ImageSources.URLSource(url);
+    }
+
+    /**
+     * Creates a source of a scaled copy of the image of another source,
+     * such as a thumbnail, so that the scaled copy can be cached
+     * instead of the whole image.
+     * @param source the source of the image to be scaled
+     * @param width width of the scaled image
+     * @param height height of the scaled image
+     * @return the source, equal to other sources
+     * of the same source and size
+     */
+    static ImageSource scaled(ImageSource source, int width, int height) {
+        return new ImageSources.ScaledSource(source, width, height, false);
+    }
+
+    /**
+     * Reads the image. May be called many times.
+     * @return the image
+     * @throws IOException if the image could not be read
+     */
+    BufferedImage read() throws IOException;
+}
@@ -0,0 +1,162 @@
+package io.github.guiritter.image_component;
+
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Objects;
+import javax.imageio.ImageIO;
+
+/**
+ * The sources created by the static methods of {@link ImageSource}.
+ * @author Guilherme Alan Ritter
+ */
+final class ImageSources {
+
+    static final class FileSource implements ImageSource {
+
+        private final File file;
+
+        @Override
+        public boolean equals(Object other) {
+            return (other instanceof FileSource)
+             && file.equals(((FileSource) other).file);
+        }
+
+        @Override
+        public int hashCode() {
+            return file.hashCode();
+        }
+
+        @Override
+        public BufferedImage read() throws IOException {
+            return checkRead(ImageIO.read(file), file);
+        }
+
+        @Override
+        public String toString() {
+            return file.toString();
+        }
+
+        FileSource(File file) {
+            if (file == null) {
+                throw new NullPointerException("file");
+            }
+            this.file = file.getAbsoluteFile();
+        }
+    }
+
+    static final class ScaledSource implements ImageSource {
+
+        /**
+         * Whether the image keeps its aspect ratio, as painted by
+         * {@link ScaleMode#FIT}, instead of being stretched to the size.
+         */
+        private final boolean fit;
+
+        private final int height;
+
+        private final ImageSource source;
+
+        private final int width;
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof ScaledSource)) {
+                return false;
+            }
+            ScaledSource scaled = (ScaledSource) other;
+            return (width == scaled.width) && (height == scaled.height)
+             && (fit == scaled.fit) && source.equals(scaled.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, width, height, fit);
+        }
+
+        @Override
+        public BufferedImage read() throws IOException {
+            BufferedImage image = source.read();
+            Rectangle size = (fit ? ScaleMode.FIT : ScaleMode.STRETCH).place(
+             image.getWidth(), image.getHeight(), width, height);
+            return ScaledImage.scale(image, size.width, size.height,
+             RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+
+        @Override
+        public String toString() {
+            return source + (fit ? " fitted to " : " at ")
+             + width + "x" + height;
+        }
+
+        ScaledSource(ImageSource source, int width, int height, boolean fit) {
+            if (source == null) {
+                throw new NullPointerException("source");
+            }
+            if ((width <= 0) || (height <= 0)) {
+                throw new IllegalArgumentException(
+                 "Size must be positive: " + width + "x" + height);
+            }
+            this.source = source;
+            this.width = width;
+            this.height = height;
+            this.fit = fit;
+        }
+    }
+
+    static final class URLSource implements ImageSource {
+
+        /**
+         * Compared as a string, since {@link URL#equals(Object)}
+         * resolves host names.
+         */
+        private final String key;
+
+        private final URL url;
+
+        @Override
+        public boolean equals(Object other) {
+            return (other instanceof URLSource)
+             && key.equals(((URLSource) other).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+
+        @Override
+        public BufferedImage read() throws IOException {
+            return checkRead(ImageIO.read(url), url);
+        }
+
+        @Override
+        public String toString() {
+            return key;
+        }
+
+        URLSource(URL url) {
+            if (url == null) {
+                throw new NullPointerException("url");
+            }
+            this.url = url;
+            key = url.toExternalForm();
+        }
+    }
+
+    /**
+     * @throws IOException if no reader could decode the input
+     */
+    private static BufferedImage checkRead(BufferedImage image, Object input)
+     throws IOException {
+        if (image == null) {
+            throw new IOException("No reader for " + input);
+        }
+        return image;
+    }
+
+    private ImageSources() {}
+}
@@ -0,0 +1,561 @@
+package io.github.guiritter.image_component;
+
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.lang.ref.WeakReference;
+
+/**
+ * An image in a {@link LayerStack}, with the properties that control
+ * how it's blended with the layers below it. Layers are created by
+ * the stack, and serve as stable handles to toggle, move and reorder images
+ * in constant time. Every change notifies the stack's listeners
+ * of the region that must be repainted.
+ * This class is not synchronized.
+ * @author Guilherme Alan Ritter
+ */
+public final class Layer {
+
+    /**
+     * The layer right above this one, or null if this is the top layer.
+     */
+    Layer above = null;
+
+    /**
+     * The layer right below this one, or null if this is the bottom layer.
+     */
+    Layer below = null;
+
+    private BlendMode blendMode = BlendMode.NORMAL;
+
+    /**
+     * Which pixels of {@link #image} are not fully transparent,
+     * or null if not indexed yet.
+     */
+    Coverage coverage = null;
+
+    private int height;
+
+    /**
+     * The image of this layer, or null while it's compressed
+     * and not decoded.
+     */
+    private BufferedImage image;
+
+    /**
+     * Smaller copies of what is painted for this layer, used in zoom mode,
+     * or null if not created yet.
+     */
+    MipMap mipMap = null;
+
+    /**
+     * Whether every pixel of {@link #image} is fully opaque,
+     * or null if not known yet.
+     */
+    Boolean opaque = null;
+
+    private float opacity = 1f;
+
+    /**
+     * The packed pixels of the image while this layer is compressed,
+     * or null if it's not compressed.
+     */
+    private PackedImage packed = null;
+
+    /**
+     * Whether the pixels of the image changed since they were packed.
+     */
+    private boolean packedStale = false;
+
+    /**
+     * {@link #image} converted to a pixel format that is fast to paint
+     * or to blend, or null if it wasn't converted yet.
+     */
+    BufferedImage painted = null;
+
+    /**
+     * Patches written into {@link #image} since they were last signaled.
+     */
+    private final PatchBatch patches = new PatchBatch(this::changed);
+
+    /**
+     * The decoded image after it was released, so that it's reused instead
+     * of decoded again while something else still holds it.
+     */
+    private WeakReference<BufferedImage> released = null;
+
+    /**
+     * The last scaled copy of what is painted for this layer.
+     */
+    final ScaledImage scaled = new ScaledImage();
+
+    /**
+     * The stack this layer belongs to, or null if it was removed.
+     */
+    LayerStack stack;
+
+    private boolean visible = true;
+
+    private int width;
+
+    private int x = 0;
+
+    private int y = 0;
+
+    /**
+     * Signals that the pixels inside a region of the image have changed,
+     * so that only the matching region of the stack is repainted.
+     * @param region the changed region, in the image's coordinates,
+     * or null if the whole image changed
+     */
+    public void changed(Rectangle region) {
+        if ((packed != null) && (peekImage() != null)) {
+            decode();
+            packedStale = true;
+        }
+        if ((painted != null) && (painted != image)) {
+            ImageComponent.copyRegion(image, painted, region);
+        }
+        scaled.invalidate();
+        if (mipMap != null) {
+            mipMap.invalidate();
+        }
+        opaque = null;
+        if ((region == null) || (image == null)) {
+            coverage = null;
+        } else if (coverage != null) {
+            coverage.refresh(image, region);
+        }
+        if (region == null) {
+            fire(getBounds());
+        } else {
+            fire(new Rectangle(
+             x + region.x, y + region.y, region.width, region.height));
+        }
+    }
+
+    /**
+     * Makes the image available, reusing the released one if something
+     * else still holds it, or decoding it otherwise, and marks it
+     * as the most recently used decoded image of the stack.
+     */
+    private void decode() {
+        if (image == null) {
+            image = peekImage();
+            if (image == null) {
+                image = packed.unpack();
+            }
+            released = null;
+        }
+        if (stack != null) {
+            stack.decoded(this);
+        }
+    }
+
+    private void fire(Rectangle region) {
+        if (stack != null) {
+            stack.fireLayerChanged(this, region);
+        }
+    }
+
+    /**
+     * @return the layer right above this one,
+     * or null if this is the top layer
+     */
+    public Layer getAbove() {
+        return above;
+    }
+
+    /**
+     * @return the layer right below this one,
+     * or null if this is the bottom layer
+     */
+    public Layer getBelow() {
+        return below;
+    }
+
+    /**
+     * @return the region of the stack covered by this layer,
+     * whether it's visible or not
+     */
+    public Rectangle getBounds() {
+        return new Rectangle(x, y, width, height);
+    }
+
+    /**
+     * @return how the colors of this layer are combined
+     * with the colors of the layers below it
+     */
+    public BlendMode getBlendMode() {
+        return blendMode;
+    }
+
+    /**
+     * @return which pixels of the image are not fully transparent,
+     * indexed when first needed
+     */
+    Coverage getCoverage() {
+        if (coverage == null) {
+            coverage = new Coverage(getImage());
+        }
+        return coverage;
+    }
+
+    /**
+     * @return how many bytes the pixels of this layer take while it's
+     * compressed, or zero if it's not compressed
+     */
+    public int getCompressedSize() {
+        return (packed == null) ? 0 : packed.getSize();
+    }
+
+    /**
+     * Returns the image of this layer, decoding it if this layer
+     * is compressed and it isn't decoded yet.
+     * @return the image of this layer
+     */
+    public BufferedImage getImage() {
+        if (packed != null) {
+            decode();
+        }
+        return image;
+    }
+
+    /**
+     * @return the opacity applied to the whole image,
+     * from 0 (transparent) to 1 (as is)
+     */
+    public float getOpacity() {
+        return opacity;
+    }
+
+    /**
+     * @return the stack this layer belongs to, or null if it was removed
+     */
+    public LayerStack getStack() {
+        return stack;
+    }
+
+    /**
+     * @return horizontal position of the top left corner of the image
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return vertical position of the top left corner of the image
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Whether this layer hides everything below it inside an area.
+     * @param drawn where this layer is drawn
+     * @param area the area, in the same coordinates
+     * @return true if the layer is drawn over the whole area
+     * and replaces every pixel there
+     */
+    boolean hides(Rectangle drawn, Rectangle area) {
+        return visible && (opacity == 1f) && (blendMode == BlendMode.NORMAL)
+         && drawn.contains(area) && isOpaque();
+    }
+
+    /**
+     * Whether every pixel of the image of this layer is fully opaque.
+     * Images with alpha are scanned once, and again after the image
+     * or its pixels change.
+     * @return true if the image has no transparent or translucent pixels
+     */
+    public boolean isOpaque() {
+        if (opaque == null) {
+            opaque = isOpaque(getImage());
+        }
+        return opaque;
+    }
+
+    private static boolean isOpaque(BufferedImage image) {
+        if (image.getTransparency() == Transparency.OPAQUE) {
+            return true;
+        }
+        WritableRaster alpha = image.getAlphaRaster();
+        if (alpha == null) {
+            return isOpaqueByColor(image);
+        }
+        int maximum = (1 << alpha.getSampleModel().getSampleSize(0)) - 1;
+        int width = alpha.getWidth();
+        int row[] = new int[width];
+        for (int y = 0; y < alpha.getHeight(); y++) {
+            alpha.getSamples(alpha.getMinX(), alpha.getMinY() + y,
+             width, 1, 0, row);
+            for (int x = 0; x < width; x++) {
+                if (row[x] != maximum) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether every pixel of an image with transparency but without
+     * an alpha raster, such as an indexed one, is fully opaque.
+     */
+    private static boolean isOpaqueByColor(BufferedImage image) {
+        if (image.getColorModel() instanceof IndexColorModel) {
+            // it's enough that no color of the palette is transparent
+            IndexColorModel palette = (IndexColorModel) image.getColorModel();
+            for (int i = 0; i < palette.getMapSize(); i++) {
+                if (palette.getAlpha(i) != 0xFF) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        int width = image.getWidth();
+        int row[] = new int[width];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                if ((row[x] >>> 24) != 0xFF) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return whether the pixels of this layer are held compressed
+     */
+    public boolean isCompressed() {
+        return packed != null;
+    }
+
+    /**
+     * @return whether this layer is painted
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Writes a rectangle of pixels straight into the image of this layer,
+     * without replacing it. Patches written before the event dispatch thread
+     * gets to them are signaled together, as by {@link #changed(Rectangle)}
+     * with their union. May be called from any thread, unless this layer
+     * is compressed, in which case it must be called by the thread
+     * that uses the stack.
+     * @param x horizontal position of the rectangle in the image
+     * @param y vertical position of the rectangle in the image
+     * @param width width of the rectangle
+     * @param height height of the rectangle
+     * @param pixels the pixels, in the default RGB color model,
+     * as by {@link BufferedImage#getRGB(int, int)}
+     * @param offset index of the top left pixel of the rectangle in the array
+     * @param scanSize distance between rows in the array
+     */
+    public void patch(int x, int y, int width, int height,
+     int pixels[], int offset, int scanSize) {
+        BufferedImage target = getImage();
+        packedStale = packed != null;
+        patches.add(PatchBatch.write(target,
+         x, y, width, height, pixels, offset, scanSize));
+    }
+
+    /**
+     * Writes a raster straight into the image of this layer, without
+     * replacing it. Patches written before the event dispatch thread gets
+     * to them are signaled together, as by {@link #changed(Rectangle)}
+     * with their union. May be called from any thread, unless this layer
+     * is compressed, in which case it must be called by the thread
+     * that uses the stack.
+     * @param x horizontal position of the raster in the image
+     * @param y vertical position of the raster in the image
+     * @param pixels the pixels, in the same format as the image
+     */
+    public void patch(int x, int y, Raster pixels) {
+        BufferedImage target = getImage();
+        packedStale = packed != null;
+        patches.add(PatchBatch.write(target, x, y, pixels));
+    }
+
+    /**
+     * @return the decoded image, even if it was released, as long as
+     * something else still holds it, without decoding it, or null
+     */
+    BufferedImage peekImage() {
+        if (image != null) {
+            return image;
+        }
+        return (released == null) ? null : released.get();
+    }
+
+    /**
+     * Drops the decoded image of this compressed layer and the copies made
+     * from it, packing its pixels again if they changed. The image is then
+     * decoded again when needed, unless something else still holds it.
+     * What is known about its transparency is kept, so that hit tests
+     * don't need to decode it.
+     */
+    void release() {
+        if (image == null) {
+            return;
+        }
+        if (packedStale) {
+            PackedImage repacked = PackedImage.pack(image);
+            if (repacked == null) {
+                // the image was replaced by one that can't be packed
+                packed = null;
+                packedStale = false;
+                return;
+            }
+            packed = repacked;
+            packedStale = false;
+        }
+        released = new WeakReference<>(image);
+        image = null;
+        painted = null;
+        mipMap = null;
+        scaled.invalidate();
+    }
+
+    /**
+     * Holds the pixels of this layer compressed, or not. Compressed pixels
+     * are deflated, which takes little memory for mostly transparent
+     * or flat images, and are decoded when the image is needed, such as
+     * when this layer is painted. The stack keeps only its
+     * {@link LayerStack#setDecodedCapacity(int) most recently used}
+     * decoded images, so compressing hidden or rarely changed layers
+     * cuts the memory of deep stacks. Memory is only saved for images
+     * not held elsewhere, and changes to the pixels must be signaled
+     * through {@link #changed(Rectangle)} or written by patches,
+     * so that they are packed again.
+     * Images whose samples aren't single ints, shorts or bytes
+     * can't be compressed, and are kept as they are.
+     * @param compressed true to compress the pixels, false to keep
+     * the image as it is
+     */
+    public void setCompressed(boolean compressed) {
+        if (compressed == (packed != null)) {
+            return;
+        }
+        if (compressed) {
+            packed = PackedImage.pack(image);
+            packedStale = false;
+            if ((packed != null) && (stack != null)) {
+                stack.decoded(this);
+            }
+        } else {
+            getImage();
+            if (stack != null) {
+                stack.forget(this);
+            }
+            packed = null;
+            packedStale = false;
+            released = null;
+        }
+    }
+
+    /**
+     * Replaces the image of this layer, keeping its properties.
+     * @param image the new image
+     */
+    public void setImage(BufferedImage image) {
+        if (image == null) {
+            throw new NullPointerException("image");
+        }
+        Rectangle region = getBounds();
+        this.image = image;
+        width = image.getWidth();
+        height = image.getHeight();
+        if (packed != null) {
+            packedStale = true;
+            released = null;
+            if (stack != null) {
+                stack.decoded(this);
+            }
+        }
+        painted = null;
+        mipMap = null;
+        opaque = null;
+        coverage = null;
+        scaled.invalidate();
+        region.add(getBounds());
+        fire(region);
+    }
+
+    /**
+     * Moves the top left corner of the image of this layer.
+     * @param x horizontal position
+     * @param y vertical position
+     */
+    public void setLocation(int x, int y) {
+        if ((x == this.x) && (y == this.y)) {
+            return;
+        }
+        Rectangle region = getBounds();
+        this.x = x;
+        this.y = y;
+        region.add(getBounds());
+        fire(region);
+    }
+
+    /**
+     * Sets how the colors of this layer are combined
+     * with the colors of the layers below it.
+     * @param blendMode how the colors are combined
+     */
+    public void setBlendMode(BlendMode blendMode) {
+        if (blendMode == null) {
+            throw new NullPointerException("blendMode");
+        }
+        if (blendMode == this.blendMode) {
+            return;
+        }
+        this.blendMode = blendMode;
+        fire(getBounds());
+    }
+
+    /**
+     * Sets the opacity applied to the whole image of this layer.
+     * @param opacity from 0 (transparent) to 1 (as is)
+     */
+    public void setOpacity(float opacity) {
+        if (!((opacity >= 0f) && (opacity <= 1f))) {
+            throw new IllegalArgumentException(
+             "Opacity must be between 0 and 1: " + opacity);
+        }
+        if (opacity == this.opacity) {
+            return;
+        }
+        this.opacity = opacity;
+        fire(getBounds());
+    }
+
+    /**
+     * Shows or hides this layer, without removing it from the stack.
+     * @param visible whether this layer is painted
+     */
+    public void setVisible(boolean visible) {
+        if (visible == this.visible) {
+            return;
+        }
+        this.visible = visible;
+        fire(getBounds());
+    }
+
+    Layer(LayerStack stack, BufferedImage image) {
+        if (image == null) {
+            throw new NullPointerException("image");
+        }
+        this.stack = stack;
+        this.image = image;
+        width = image.getWidth();
+        height = image.getHeight();
+    }
+}
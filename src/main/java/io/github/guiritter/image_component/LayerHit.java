@@ -0,0 +1,53 @@
+package io.github.guiritter.image_component;
+
+/**
+ * The topmost layer of a {@link LayerStack} that has a pixel
+ * that is not fully transparent under a point, and that pixel.
+ * @author Guilherme Alan Ritter
+ */
+public final class LayerHit {
+
+    private final Layer layer;
+
+    private final int rgb;
+
+    private final int x;
+
+    private final int y;
+
+    /**
+     * @return the layer that was hit
+     */
+    public Layer getLayer() {
+        return layer;
+    }
+
+    /**
+     * @return the pixel that was hit, in the default RGB color model,
+     * as by {@link java.awt.image.BufferedImage#getRGB(int, int)}
+     */
+    public int getRGB() {
+        return rgb;
+    }
+
+    /**
+     * @return horizontal position of the pixel in the image of the layer
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return vertical position of the pixel in the image of the layer
+     */
+    public int getY() {
+        return y;
+    }
+
+    LayerHit(Layer layer, int x, int y) {
+        this.layer = layer;
+        this.x = x;
+        this.y = y;
+        rgb = layer.getImage().getRGB(x, y);
+    }
+}
@@ -0,0 +1,21 @@
+package io.github.guiritter.image_component;
+
+import java.awt.Rectangle;
+import java.util.EventListener;
+
+/**
+ * Notified of changes to a {@link LayerStack} or to its layers.
+ * @author Guilherme Alan Ritter
+ */
+public interface LayerListener extends EventListener {
+
+    /**
+     * Called after a layer was added, removed, moved in the stack,
+     * or had its image or properties changed.
+     * @param stack the stack that changed
+     * @param layer the layer that changed
+     * @param region the region of the stack that must be repainted,
+     * in the stack's coordinates, or null if all of it
+     */
+    void layerChanged(LayerStack stack, Layer layer, Rectangle region);
+}
@@ -0,0 +1,364 @@
+package io.github.guiritter.image_component;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Ordered stack of {@link Layer}s, first layer in the bottom.
+ * Adding, removing and reordering layers take constant time,
+ * since the layers themselves are the links of the stack.
+ * Iteration goes from the bottom to the top.
+ * Layers can be found by their pixels under a point or inside an area,
+ * through an index of their transparent pixels that is built when first
+ * needed and refreshed when they change, so that queries stay cheap
+ * for deep stacks of large images.
+ * Layers can be {@link Layer#setCompressed(boolean) compressed}, in which
+ * case only a few of their images are kept decoded at a time.
+ * This class is not synchronized.
+ * @author Guilherme Alan Ritter
+ */
+public final class LayerStack implements Iterable<Layer> {
+
+    private Layer bottom = null;
+
+    /**
+     * Compressed layers whose images are decoded,
+     * from the least to the most recently used.
+     */
+    private final LinkedHashSet<Layer> decoded = new LinkedHashSet<>();
+
+    /**
+     * How many compressed layers can have their images decoded at once.
+     */
+    private int decodedCapacity = 4;
+
+    private final ArrayList<LayerListener> listeners = new ArrayList<>();
+
+    private int size = 0;
+
+    private Layer top = null;
+
+    /**
+     * Adds an image to the top of the stack.
+     * @param image the image of the new layer
+     * @return the new layer
+     */
+    public Layer add(BufferedImage image) {
+        Layer layer = new Layer(this, image);
+        link(layer, top, null);
+        fireLayerChanged(layer, layer.getBounds());
+        return layer;
+    }
+
+    /**
+     * Registers a listener to be notified of changes to this stack
+     * and its layers.
+     * @param listener the listener
+     */
+    public void addLayerListener(LayerListener listener) {
+        listeners.add(listener);
+    }
+
+    private void check(Layer layer) {
+        if (layer.stack != this) {
+            throw new IllegalArgumentException(
+             "Layer does not belong to this stack.");
+        }
+    }
+
+    /**
+     * Removes all layers.
+     */
+    public void clear() {
+        Layer layer = bottom;
+        while (layer != null) {
+            Layer next = layer.above;
+            layer.stack = null;
+            layer.above = null;
+            layer.below = null;
+            layer = next;
+        }
+        bottom = null;
+        top = null;
+        size = 0;
+        decoded.clear();
+        fireLayerChanged(null, null);
+    }
+
+    /**
+     * Marks the image of a compressed layer as the most recently used,
+     * releasing the least recently used ones beyond the capacity.
+     * @param layer a compressed layer whose image is decoded
+     */
+    void decoded(Layer layer) {
+        decoded.remove(layer);
+        decoded.add(layer);
+        trim();
+    }
+
+    void fireLayerChanged(Layer layer, Rectangle region) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).layerChanged(this, layer, region);
+        }
+    }
+
+    /**
+     * Stops tracking the decoded image of a layer that is
+     * no longer compressed or no longer in this stack.
+     */
+    void forget(Layer layer) {
+        decoded.remove(layer);
+    }
+
+    /**
+     * Returns the layer at a position. This takes linear time,
+     * so prefer keeping the layers themselves.
+     * @param index position from the bottom of the stack
+     * @return the layer at that position
+     */
+    public Layer get(int index) {
+        if ((index < 0) || (index >= size)) {
+            throw new IndexOutOfBoundsException(
+             "Index: " + index + ", Size: " + size);
+        }
+        Layer layer = bottom;
+        for (int i = 0; i < index; i++) {
+            layer = layer.above;
+        }
+        return layer;
+    }
+
+    /**
+     * @return the bottom layer, or null if the stack is empty
+     */
+    public Layer getBottom() {
+        return bottom;
+    }
+
+    /**
+     * @return how many compressed layers can have their images
+     * decoded at once
+     */
+    public int getDecodedCapacity() {
+        return decodedCapacity;
+    }
+
+    /**
+     * Finds the painted layers that have pixels that are not
+     * fully transparent inside an area.
+     * @param area the area, in the stack's coordinates
+     * @return the layers, from the bottom to the top
+     */
+    public List<Layer> getLayersIn(Rectangle area) {
+        ArrayList<Layer> found = new ArrayList<>();
+        Rectangle local = new Rectangle(area);
+        for (Layer layer = bottom; layer != null; layer = layer.above) {
+            if ((!isPainted(layer)) || (!layer.getBounds().intersects(area))) {
+                continue;
+            }
+            local.setLocation(area.x - layer.getX(), area.y - layer.getY());
+            if (layer.getCoverage().intersects(local)) {
+                found.add(layer);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return the top layer, or null if the stack is empty
+     */
+    public Layer getTop() {
+        return top;
+    }
+
+    /**
+     * Finds the topmost painted layer that has a pixel that is not
+     * fully transparent under a point, regardless of its blend mode.
+     * @param x horizontal position, in the stack's coordinates
+     * @param y vertical position, in the stack's coordinates
+     * @return the layer and its pixel, or null if no layer was hit
+     */
+    public LayerHit hitTest(int x, int y) {
+        for (Layer layer = top; layer != null; layer = layer.below) {
+            int imageX = x - layer.getX();
+            int imageY = y - layer.getY();
+            if (isPainted(layer) && layer.getBounds().contains(x, y)
+             && layer.getCoverage().covers(imageX, imageY)) {
+                return new LayerHit(layer, imageX, imageY);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether the stack has no layers
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static boolean isPainted(Layer layer) {
+        return layer.isVisible() && (layer.getOpacity() > 0f);
+    }
+
+    /**
+     * @return an iterator from the bottom to the top layer
+     */
+    @Override
+    public Iterator<Layer> iterator() {
+        return new Iterator<Layer>() {
+
+            private Layer next = bottom;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Layer next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Layer layer = next;
+                next = next.above;
+                return layer;
+            }
+        };
+    }
+
+    /**
+     * Links a layer between two neighbouring layers.
+     */
+    private void link(Layer layer, Layer below, Layer above) {
+        layer.below = below;
+        layer.above = above;
+        if (below == null) {
+            bottom = layer;
+        } else {
+            below.above = layer;
+        }
+        if (above == null) {
+            top = layer;
+        } else {
+            above.below = layer;
+        }
+        size++;
+    }
+
+    /**
+     * Moves a layer right above another one.
+     * @param layer the layer to be moved
+     * @param reference the layer that will be right below it,
+     * or null to move it to the bottom
+     */
+    public void moveAbove(Layer layer, Layer reference) {
+        check(layer);
+        if (reference != null) {
+            check(reference);
+        }
+        if ((layer == reference) || (layer.below == reference)) {
+            return;
+        }
+        unlink(layer);
+        link(layer, reference, (reference == null) ? bottom : reference.above);
+        fireLayerChanged(layer, layer.getBounds());
+    }
+
+    /**
+     * Moves a layer right below another one.
+     * @param layer the layer to be moved
+     * @param reference the layer that will be right above it,
+     * or null to move it to the top
+     */
+    public void moveBelow(Layer layer, Layer reference) {
+        check(layer);
+        if (reference != null) {
+            check(reference);
+        }
+        if ((layer == reference) || (layer.above == reference)) {
+            return;
+        }
+        unlink(layer);
+        link(layer, (reference == null) ? top : reference.below, reference);
+        fireLayerChanged(layer, layer.getBounds());
+    }
+
+    /**
+     * Removes a layer from the stack.
+     * @param layer the layer to be removed
+     */
+    public void remove(Layer layer) {
+        check(layer);
+        unlink(layer);
+        decoded.remove(layer);
+        layer.stack = null;
+        fireLayerChanged(layer, layer.getBounds());
+    }
+
+    /**
+     * Unregisters a listener.
+     * @param listener the listener
+     */
+    public void removeLayerListener(LayerListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Sets how many compressed layers can have their images decoded
+     * at once. The least recently used ones beyond that are released,
+     * and decoded again when needed.
+     * @param capacity the capacity, at least one
+     */
+    public void setDecodedCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+             "Capacity must be at least one: " + capacity);
+        }
+        decodedCapacity = capacity;
+        trim();
+    }
+
+    /**
+     * @return how many layers are in the stack
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Releases the least recently used decoded images beyond the capacity.
+     */
+    private void trim() {
+        while (decoded.size() > decodedCapacity) {
+            Iterator<Layer> eldest = decoded.iterator();
+            Layer released = eldest.next();
+            eldest.remove();
+            released.release();
+        }
+    }
+
+    /**
+     * Removes a layer from between its neighbours.
+     */
+    private void unlink(Layer layer) {
+        if (layer.below == null) {
+            bottom = layer.above;
+        } else {
+            layer.below.above = layer.above;
+        }
+        if (layer.above == null) {
+            top = layer.below;
+        } else {
+            layer.above.below = layer.below;
+        }
+        layer.above = null;
+        layer.below = null;
+        size--;
+    }
+}
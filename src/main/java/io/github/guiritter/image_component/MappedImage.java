@@ -0,0 +1,530 @@
+package io.github.guiritter.image_component;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Raw samples of one band of a raster, such as 16 bit grayscale or float
+ * data, shown through a window, which maps a range of sample values
+ * linearly onto a palette of colors, gray by default. Samples outside
+ * the window take the first or last color.
+ * An {@link ImageComponent#setMappedImage(MappedImage) ImageComponent}
+ * keeps a display image of only what is visible of the samples,
+ * at the painted size, mapped in parallel bands of rows and only again
+ * after the window, the palette, the samples or what is visible change,
+ * so that adjusting the window costs the same for any size of raster.
+ * Samples of 8 and 16 bit integer rasters are mapped through a table of
+ * all of their values, built once per window or palette change.
+ * Changes to the samples must be signaled through {@link #changed()}.
+ * This class is not synchronized.
+ * @author Guilherme Alan Ritter
+ */
+public final class MappedImage {
+
+    /**
+     * How many pixels each band has, at least, before it's split no more.
+     */
+    private static final int BAND_PIXELS = 1 << 15;
+
+    /**
+     * The band of {@link #raster} that is shown.
+     */
+    private final int band;
+
+    /**
+     * The bank of the band, or null if the raster's sample model
+     * isn't a {@link ComponentSampleModel}.
+     */
+    private final Object data;
+
+    private final int dataType;
+
+    private final int height;
+
+    private final ArrayList<Runnable> listeners = new ArrayList<>();
+
+    /**
+     * Index of the sample at the top left corner of the raster in
+     * {@link #data}.
+     */
+    private final int offset;
+
+    private int palette[];
+
+    /**
+     * Distance between horizontally neighbouring samples in {@link #data}.
+     */
+    private final int pixelStride;
+
+    public final Raster raster;
+
+    /**
+     * Distance between vertically neighbouring samples in {@link #data}.
+     */
+    private final int scanlineStride;
+
+    /**
+     * Color of each value of 8 and 16 bit integer samples,
+     * or null if not built yet or not used.
+     */
+    private int table[] = null;
+
+    /**
+     * Incremented on every change to what is shown.
+     */
+    private long version = 0;
+
+    private final int width;
+
+    private double windowCenter;
+
+    private double windowWidth;
+
+    /**
+     * Maps a band of rows of the display image.
+     */
+    private static final class Band extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Column of the samples shown by each column of the display image.
+         */
+        private final int columns[];
+
+        private final MappedImage image;
+
+        private final int rowFirst;
+
+        private final int rowLast;
+
+        /**
+         * Row of the samples shown by each row of the display image.
+         */
+        private final int rows[];
+
+        private final int target[];
+
+        private final int targetOffset;
+
+        private final int targetStride;
+
+        @Override
+        protected void compute() {
+            int count = rowLast - rowFirst;
+            if ((count > 1) && ((count * columns.length) > BAND_PIXELS)) {
+                int middle = rowFirst + (count / 2);
+                invokeAll(new Band(image, rows, columns,
+                  target, targetOffset, targetStride, rowFirst, middle),
+                 new Band(image, rows, columns,
+                  target, targetOffset, targetStride, middle, rowLast));
+                return;
+            }
+            for (int y = rowFirst; y < rowLast; y++) {
+                image.mapRow(rows[y], columns,
+                 target, targetOffset + (y * targetStride));
+            }
+        }
+
+        Band(MappedImage image, int rows[], int columns[], int target[],
+         int targetOffset, int targetStride, int rowFirst, int rowLast) {
+            this.image = image;
+            this.rows = rows;
+            this.columns = columns;
+            this.target = target;
+            this.targetOffset = targetOffset;
+            this.targetStride = targetStride;
+            this.rowFirst = rowFirst;
+            this.rowLast = rowLast;
+        }
+    }
+
+    /**
+     * Registers a listener to be called after every change
+     * to what is shown.
+     * @param listener the listener
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Signals that samples of the raster have changed.
+     */
+    public void changed() {
+        version++;
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).run();
+        }
+    }
+
+    /**
+     * @return color of a sample value
+     */
+    private int color(double value, double low, double scale) {
+        double position = (value - low) * scale;
+        if (position >= palette.length) {
+            return palette[palette.length - 1];
+        }
+        // NaN is shown as the first color
+        return (position > 0) ? palette[(int) position] : palette[0];
+    }
+
+    /**
+     * Sets the window to the range of the samples.
+     */
+    public void fitWindow() {
+        double minimum = Double.POSITIVE_INFINITY;
+        double maximum = Double.NEGATIVE_INFINITY;
+        double row[] = new double[width];
+        for (int y = 0; y < height; y++) {
+            raster.getSamples(raster.getMinX(), raster.getMinY() + y,
+             width, 1, band, row);
+            for (int x = 0; x < width; x++) {
+                if (row[x] < minimum) {
+                    minimum = row[x];
+                }
+                if (row[x] > maximum) {
+                    maximum = row[x];
+                }
+            }
+        }
+        if (minimum > maximum) {
+            return;
+        }
+        setWindow((minimum + maximum) / 2,
+         Math.max(maximum - minimum, Math.ulp(maximum)));
+    }
+
+    /**
+     * @return the array of a bank of a buffer, or null if its type
+     * is not one that is mapped directly
+     */
+    private static Object getBank(DataBuffer buffer, int bank) {
+        if (buffer instanceof DataBufferByte) {
+            return ((DataBufferByte) buffer).getData(bank);
+        }
+        if (buffer instanceof DataBufferUShort) {
+            return ((DataBufferUShort) buffer).getData(bank);
+        }
+        if (buffer instanceof DataBufferShort) {
+            return ((DataBufferShort) buffer).getData(bank);
+        }
+        if (buffer instanceof DataBufferInt) {
+            return ((DataBufferInt) buffer).getData(bank);
+        }
+        if (buffer instanceof DataBufferFloat) {
+            return ((DataBufferFloat) buffer).getData(bank);
+        }
+        if (buffer instanceof DataBufferDouble) {
+            return ((DataBufferDouble) buffer).getData(bank);
+        }
+        return null;
+    }
+
+    /**
+     * @return height of the raster
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return a copy of the colors the window maps samples onto
+     */
+    public int[] getPalette() {
+        return palette.clone();
+    }
+
+    /**
+     * Returns a sample shown by this image, such as for showing
+     * the value under the mouse pointer.
+     * @param x horizontal position, relative to the top left corner
+     * @param y vertical position, relative to the top left corner
+     * @return the sample
+     */
+    public double getSample(int x, int y) {
+        return raster.getSampleDouble(
+         raster.getMinX() + x, raster.getMinY() + y, band);
+    }
+
+    /**
+     * @return incremented on every change to what is shown
+     */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return width of the raster
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return sample value at the center of the window
+     */
+    public double getWindowCenter() {
+        return windowCenter;
+    }
+
+    /**
+     * @return range of sample values covered by the window
+     */
+    public double getWindowWidth() {
+        return windowWidth;
+    }
+
+    /**
+     * @return the gray ramp that is the default palette
+     */
+    private static int[] grays() {
+        int colors[] = new int[256];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = 0xFF000000 | (i * 0x010101);
+        }
+        return colors;
+    }
+
+    /**
+     * Maps the samples shown in a region of the area an image is painted
+     * into, sampling the nearest sample for each pixel.
+     * @param target pixels of the display image, in the default RGB
+     * color model, whose top left corner shows the top left corner
+     * of the region
+     * @param targetOffset index of the top left pixel in the array
+     * @param targetStride distance between rows in the array
+     * @param placement where the whole image is painted
+     * @param region the region to map, inside the placement
+     * @param pool where the bands of rows are mapped
+     */
+    void map(int target[], int targetOffset, int targetStride,
+     Rectangle placement, Rectangle region, ForkJoinPool pool) {
+        if (region.isEmpty()) {
+            return;
+        }
+        if ((table == null) && (data != null)
+         && ((dataType == DataBuffer.TYPE_BYTE)
+          || (dataType == DataBuffer.TYPE_USHORT)
+          || (dataType == DataBuffer.TYPE_SHORT))) {
+            table = new int[(dataType == DataBuffer.TYPE_BYTE) ? 256 : 65536];
+            double low = windowCenter - (windowWidth / 2);
+            double scale = palette.length / windowWidth;
+            int first = (dataType == DataBuffer.TYPE_SHORT) ? -32768 : 0;
+            for (int i = 0; i < table.length; i++) {
+                table[i] = color(first + i, low, scale);
+            }
+        }
+        int columns[] = new int[region.width];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = toSample(region.x + i - placement.x,
+             placement.width, width);
+        }
+        int rows[] = new int[region.height];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = toSample(region.y + i - placement.y,
+             placement.height, height);
+        }
+        pool.invoke(new Band(this, rows, columns,
+         target, targetOffset, targetStride, 0, rows.length));
+    }
+
+    /**
+     * Maps the samples of a row of the raster shown by a row
+     * of the display image.
+     */
+    private void mapRow(int y, int columns[], int target[], int t) {
+        double low = windowCenter - (windowWidth / 2);
+        double scale = palette.length / windowWidth;
+        int count = columns.length;
+        int row = offset + (y * scanlineStride);
+        int i;
+        if (data == null) {
+            for (i = 0; i < count; i++) {
+                target[t + i] = color(getSample(columns[i], y), low, scale);
+            }
+            return;
+        }
+        switch (dataType) {
+            case DataBuffer.TYPE_BYTE:
+                byte bytes[] = (byte[]) data;
+                for (i = 0; i < count; i++) {
+                    target[t + i] = table[
+                     bytes[row + (columns[i] * pixelStride)] & 0xFF];
+                }
+                break;
+            case DataBuffer.TYPE_USHORT:
+                short ushorts[] = (short[]) data;
+                for (i = 0; i < count; i++) {
+                    target[t + i] = table[
+                     ushorts[row + (columns[i] * pixelStride)] & 0xFFFF];
+                }
+                break;
+            case DataBuffer.TYPE_SHORT:
+                short shorts[] = (short[]) data;
+                for (i = 0; i < count; i++) {
+                    target[t + i] = table[
+                     shorts[row + (columns[i] * pixelStride)] + 32768];
+                }
+                break;
+            case DataBuffer.TYPE_INT:
+                int ints[] = (int[]) data;
+                for (i = 0; i < count; i++) {
+                    target[t + i] = color(
+                     ints[row + (columns[i] * pixelStride)], low, scale);
+                }
+                break;
+            case DataBuffer.TYPE_FLOAT:
+                float floats[] = (float[]) data;
+                for (i = 0; i < count; i++) {
+                    target[t + i] = color(
+                     floats[row + (columns[i] * pixelStride)], low, scale);
+                }
+                break;
+            default:
+                double doubles[] = (double[]) data;
+                for (i = 0; i < count; i++) {
+                    target[t + i] = color(
+                     doubles[row + (columns[i] * pixelStride)], low, scale);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Unregisters a listener.
+     * @param listener the listener
+     */
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Sets the colors the window maps samples onto, from the color
+     * of the lowest sample value to the color of the highest one.
+     * @param palette colors in the default RGB color model,
+     * whose alpha is ignored
+     */
+    public void setPalette(int palette[]) {
+        if (palette.length == 0) {
+            throw new IllegalArgumentException("Palette has no colors.");
+        }
+        this.palette = new int[palette.length];
+        for (int i = 0; i < palette.length; i++) {
+            this.palette[i] = palette[i] | 0xFF000000;
+        }
+        table = null;
+        changed();
+    }
+
+    /**
+     * Sets the range of sample values mapped onto the palette,
+     * also known as window and level.
+     * @param center sample value at the center of the range
+     * @param width size of the range, greater than zero
+     */
+    public void setWindow(double center, double width) {
+        if (!((width > 0) && Double.isFinite(width)
+         && Double.isFinite(center))) {
+            throw new IllegalArgumentException(
+             "Invalid window, center " + center + ", width " + width + ".");
+        }
+        windowCenter = center;
+        windowWidth = width;
+        table = null;
+        changed();
+    }
+
+    /**
+     * Maps a position in the area an image is painted into
+     * to the nearest sample, clamped to the image.
+     */
+    private static int toSample(int position, int placed, int size) {
+        long sample = (((long) position) * size) / placed;
+        return (int) Math.max(0, Math.min(size - 1, sample));
+    }
+
+    /**
+     * Creates an image showing the first band of a raster, such as
+     * the raster of a {@link BufferedImage#TYPE_USHORT_GRAY} image,
+     * with a window covering every possible value of integer samples
+     * or the range of 0 to 1 of floating point samples.
+     * @param raster the samples
+     */
+    public MappedImage(Raster raster) {
+        this(raster, 0);
+    }
+
+    /**
+     * Creates an image showing a band of a raster, with a window covering
+     * every possible value of integer samples or the range of 0 to 1
+     * of floating point samples.
+     * @param raster the samples
+     * @param band the band that is shown
+     */
+    public MappedImage(Raster raster, int band) {
+        if ((band < 0) || (band >= raster.getNumBands())) {
+            throw new IllegalArgumentException("Raster has no band " + band);
+        }
+        this.raster = raster;
+        this.band = band;
+        width = raster.getWidth();
+        height = raster.getHeight();
+        DataBuffer buffer = raster.getDataBuffer();
+        dataType = buffer.getDataType();
+        if (raster.getSampleModel() instanceof ComponentSampleModel) {
+            ComponentSampleModel model
+             = (ComponentSampleModel) raster.getSampleModel();
+            int bank = model.getBankIndices()[band];
+            pixelStride = model.getPixelStride();
+            scanlineStride = model.getScanlineStride();
+            offset = buffer.getOffsets()[bank] + model.getBandOffsets()[band]
+             + ((raster.getMinY() - raster.getSampleModelTranslateY())
+              * scanlineStride)
+             + ((raster.getMinX() - raster.getSampleModelTranslateX())
+              * pixelStride);
+            data = getBank(buffer, bank);
+        } else {
+            pixelStride = 0;
+            scanlineStride = 0;
+            offset = 0;
+            data = null;
+        }
+        palette = grays();
+        switch (dataType) {
+            case DataBuffer.TYPE_BYTE:
+                windowCenter = 128;
+                windowWidth = 256;
+                break;
+            case DataBuffer.TYPE_USHORT:
+                windowCenter = 32768;
+                windowWidth = 65536;
+                break;
+            case DataBuffer.TYPE_SHORT:
+                windowCenter = 0;
+                windowWidth = 65536;
+                break;
+            case DataBuffer.TYPE_INT:
+                windowCenter = 0;
+                windowWidth = 4294967296.0;
+                break;
+            default:
+                windowCenter = 0.5;
+                windowWidth = 1;
+                break;
+        }
+    }
+}
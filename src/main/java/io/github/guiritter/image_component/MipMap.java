@@ -0,0 +1,158 @@
+package io.github.guiritter.image_component;
+
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.lang.ref.SoftReference;
+
+/**
+ * Pyramid of ever smaller copies of an image, each half the size of the
+ * previous one, used to paint the image zoomed out without sampling
+ * all of its pixels. Levels are built in the background when first
+ * needed, and are held through soft references, so that the garbage
+ * collector frees them under memory pressure; they are then built again
+ * when needed. Until a level is available, the nearest larger one is used.
+ * This class is thread safe.
+ * @author Guilherme Alan Ritter
+ */
+public final class MipMap {
+
+    /**
+     * Whether levels are being built in the background.
+     */
+    private boolean building = false;
+
+    /**
+     * Incremented when the image changes, so that levels built
+     * from old pixels are discarded.
+     */
+    private int generation = 0;
+
+    /**
+     * Level {@code i} is at index {@code i - 1}. Level zero is the image.
+     */
+    private final SoftReference<BufferedImage> levels[];
+
+    /**
+     * Called from the background when a level is built.
+     */
+    private final Runnable listener;
+
+    /**
+     * The deepest level requested and not yet built.
+     */
+    private int requested = 0;
+
+    public final BufferedImage source;
+
+    /**
+     * Builds the requested levels, each from the previous one.
+     */
+    private void build() {
+        while (true) {
+            int target;
+            int currentGeneration;
+            BufferedImage previous = source;
+            int level = 1;
+            synchronized (this) {
+                target = requested;
+                currentGeneration = generation;
+                while ((level <= target) && (getLevel(level) != null)) {
+                    previous = getLevel(level);
+                    level++;
+                }
+                if (level > target) {
+                    building = false;
+                    return;
+                }
+            }
+            BufferedImage built = ScaledImage.scale(previous,
+             Math.max(1, previous.getWidth() / 2),
+             Math.max(1, previous.getHeight() / 2),
+             RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            synchronized (this) {
+                if (currentGeneration == generation) {
+                    levels[level - 1] = new SoftReference<>(built);
+                }
+            }
+            if (listener != null) {
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * Returns the copy best suited to paint the image at a zoom,
+     * which is the smallest one still at least as large as needed.
+     * If it's not available, it's built in the background,
+     * and the nearest larger available copy is returned meanwhile.
+     * @param zoom the size of the painted image relative to the image
+     * @return a copy of the image, or the image itself
+     */
+    public synchronized BufferedImage get(double zoom) {
+        int level = 0;
+        while ((level < levels.length) && ((zoom * 2) <= 1.0 / (1 << level))) {
+            level++;
+        }
+        for (int i = level; i > 0; i--) {
+            BufferedImage image = getLevel(i);
+            if (image != null) {
+                if (i < level) {
+                    request(level);
+                }
+                return image;
+            }
+        }
+        if (level > 0) {
+            request(level);
+        }
+        return source;
+    }
+
+    /**
+     * @return a level, or null if it's not built or was freed
+     */
+    private BufferedImage getLevel(int level) {
+        SoftReference<BufferedImage> reference = levels[level - 1];
+        return (reference == null) ? null : reference.get();
+    }
+
+    /**
+     * Discards all levels, because the pixels of the image changed.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        requested = 0;
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = null;
+        }
+    }
+
+    private void request(int level) {
+        requested = Math.max(requested, level);
+        if (!building) {
+            building = true;
+            ImageLoad.EXECUTOR.execute(this::build);
+        }
+    }
+
+    /**
+     * Creates an empty pyramid for an image.
+     * @param source the image
+     * @param listener called from a background thread after each level
+     * is built, for example to repaint, or null
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public MipMap(BufferedImage source, Runnable listener) {
+        if (source == null) {
+            throw new NullPointerException("source");
+        }
+        this.source = source;
+        this.listener = listener;
+        int depth = 0;
+        while (((source.getWidth() >> (depth + 1)) > 0)
+         && ((source.getHeight() >> (depth + 1)) > 0)) {
+            depth++;
+        }
+        levels = new SoftReference[depth];
+    }
+}
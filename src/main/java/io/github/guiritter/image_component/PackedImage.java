@@ -0,0 +1,240 @@
+package io.github.guiritter.image_component;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The pixels of an image, deflated, along with what is needed to build
+ * an image with the same layout and colors from them. Large transparent
+ * or flat areas, common in overlays, take almost no space.
+ * Only images whose samples are stored in a single bank of bytes,
+ * shorts or ints can be packed.
+ * This class is immutable.
+ * @author Guilherme Alan Ritter
+ */
+final class PackedImage {
+
+    /**
+     * How many bytes are deflated or inflated at a time.
+     */
+    private static final int CHUNK = 1 << 16;
+
+    private final ColorModel colorModel;
+
+    /**
+     * The deflated samples of the bank.
+     */
+    private final byte data[];
+
+    /**
+     * Layout of the bank.
+     */
+    private final int dataOffset;
+
+    private final int dataSize;
+
+    private final int dataType;
+
+    final int height;
+
+    /**
+     * How many samples the bank holds.
+     */
+    private final int length;
+
+    private final SampleModel sampleModel;
+
+    /**
+     * Position of the image in the raster that owns the bank,
+     * for images that share the bank of a larger one.
+     */
+    private final int sampleModelTranslateX;
+
+    private final int sampleModelTranslateY;
+
+    final int width;
+
+    /**
+     * @return how many bytes the packed pixels take
+     */
+    int getSize() {
+        return data.length;
+    }
+
+    /**
+     * Inflates the samples of the bank.
+     * @return a new bank with the same layout as the packed one
+     */
+    private DataBuffer inflate() throws IOException {
+        try (InputStream in
+         = new InflaterInputStream(new ByteArrayInputStream(data))) {
+            byte chunk[] = new byte[CHUNK];
+            ByteBuffer view = ByteBuffer.wrap(chunk);
+            switch (dataType) {
+                case DataBuffer.TYPE_BYTE: {
+                    byte samples[] = new byte[length];
+                    read(in, samples, length);
+                    return new DataBufferByte(samples, dataSize, dataOffset);
+                }
+                case DataBuffer.TYPE_USHORT: {
+                    short samples[] = new short[length];
+                    for (int i = 0; i < length; i += CHUNK / 2) {
+                        int count = Math.min(CHUNK / 2, length - i);
+                        read(in, chunk, count * 2);
+                        view.clear();
+                        view.asShortBuffer().get(samples, i, count);
+                    }
+                    return new DataBufferUShort(samples, dataSize, dataOffset);
+                }
+                default: {
+                    int samples[] = new int[length];
+                    for (int i = 0; i < length; i += CHUNK / 4) {
+                        int count = Math.min(CHUNK / 4, length - i);
+                        read(in, chunk, count * 4);
+                        view.clear();
+                        view.asIntBuffer().get(samples, i, count);
+                    }
+                    return new DataBufferInt(samples, dataSize, dataOffset);
+                }
+            }
+        }
+    }
+
+    /**
+     * Packs the pixels of an image.
+     * @param image the image
+     * @return the packed pixels, or null if the image can't be packed
+     */
+    static PackedImage pack(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        if ((buffer.getNumBanks() != 1)
+         || ((buffer.getDataType() != DataBuffer.TYPE_BYTE)
+          && (buffer.getDataType() != DataBuffer.TYPE_USHORT)
+          && (buffer.getDataType() != DataBuffer.TYPE_INT))) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (OutputStream out
+         = new DeflaterOutputStream(bytes, deflater, CHUNK)) {
+            write(buffer, out);
+        } catch (IOException ex) {
+            // only thrown by the stream in memory if it's broken
+            throw new UncheckedIOException(ex);
+        } finally {
+            deflater.end();
+        }
+        return new PackedImage(image, bytes.toByteArray());
+    }
+
+    /**
+     * Reads all bytes into a chunk, unless the stream ends first.
+     * @return how many bytes were read
+     */
+    private static int read(InputStream in, byte chunk[], int length)
+     throws IOException {
+        int read = 0;
+        while (read < length) {
+            int count = in.read(chunk, read, length - read);
+            if (count < 0) {
+                break;
+            }
+            read += count;
+        }
+        return read;
+    }
+
+    /**
+     * Builds a new image with the packed pixels.
+     * @return an image with the same layout and colors as the packed one
+     */
+    BufferedImage unpack() {
+        DataBuffer buffer;
+        try {
+            buffer = inflate();
+        } catch (IOException ex) {
+            // only thrown by the stream in memory if it's broken
+            throw new UncheckedIOException(ex);
+        }
+        WritableRaster raster
+         = WritableRaster.createWritableRaster(sampleModel, buffer, null);
+        if ((sampleModelTranslateX != 0) || (sampleModelTranslateY != 0)
+         || (raster.getWidth() != width) || (raster.getHeight() != height)) {
+            raster = raster.createWritableChild(
+             -sampleModelTranslateX, -sampleModelTranslateY,
+             width, height, 0, 0, null);
+        }
+        return new BufferedImage(colorModel, raster,
+         colorModel.isAlphaPremultiplied(), null);
+    }
+
+    /**
+     * Writes the samples of a bank as bytes, in chunks.
+     */
+    private static void write(DataBuffer buffer, OutputStream out)
+     throws IOException {
+        byte chunk[] = new byte[CHUNK];
+        ByteBuffer view = ByteBuffer.wrap(chunk);
+        switch (buffer.getDataType()) {
+            case DataBuffer.TYPE_BYTE:
+                out.write(((DataBufferByte) buffer).getData());
+                break;
+            case DataBuffer.TYPE_USHORT: {
+                short samples[] = ((DataBufferUShort) buffer).getData();
+                for (int i = 0; i < samples.length; i += CHUNK / 2) {
+                    int count = Math.min(CHUNK / 2, samples.length - i);
+                    view.clear();
+                    view.asShortBuffer().put(samples, i, count);
+                    out.write(chunk, 0, count * 2);
+                }
+                break;
+            }
+            default: {
+                int samples[] = ((DataBufferInt) buffer).getData();
+                for (int i = 0; i < samples.length; i += CHUNK / 4) {
+                    int count = Math.min(CHUNK / 4, samples.length - i);
+                    view.clear();
+                    view.asIntBuffer().put(samples, i, count);
+                    out.write(chunk, 0, count * 4);
+                }
+            }
+        }
+    }
+
+    private PackedImage(BufferedImage image, byte data[]) {
+        WritableRaster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        colorModel = image.getColorModel();
+        this.data = data;
+        dataOffset = buffer.getOffset();
+        dataSize = buffer.getSize();
+        dataType = buffer.getDataType();
+        height = image.getHeight();
+        length = (dataType == DataBuffer.TYPE_BYTE)
+         ? ((DataBufferByte) buffer).getData().length
+         : (dataType == DataBuffer.TYPE_USHORT)
+          ? ((DataBufferUShort) buffer).getData().length
+          : ((DataBufferInt) buffer).getData().length;
+        sampleModel = raster.getSampleModel();
+        sampleModelTranslateX = raster.getSampleModelTranslateX();
+        sampleModelTranslateY = raster.getSampleModelTranslateY();
+        width = image.getWidth();
+    }
+}
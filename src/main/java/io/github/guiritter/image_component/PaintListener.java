@@ -0,0 +1,30 @@
+package io.github.guiritter.image_component;
+
+import java.util.EventListener;
+
+/**
+ * Notified of the time an {@link ImageComponent} spends painting
+ * and changing its image. Called on the thread doing the work,
+ * usually the event dispatch thread, so implementations must be quick.
+ * @author Guilherme Alan Ritter
+ */
+public interface PaintListener extends EventListener {
+
+    /**
+     * Called after the component's image was set, or after its stack
+     * of images was updated.
+     * @param component the component
+     * @param nanos how long it took, in nanoseconds
+     */
+    void imageChanged(ImageComponent component, long nanos);
+
+    /**
+     * Called after the component painted its images.
+     * @param component the component
+     * @param nanos how long painting took, in nanoseconds
+     * @param pixels how many pixels of the component were painted,
+     * estimated from the repainted region
+     * @param images how many images were drawn
+     */
+    void painted(ImageComponent component, long nanos, long pixels, int images);
+}
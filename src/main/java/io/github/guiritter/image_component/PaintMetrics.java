@@ -0,0 +1,189 @@
+package io.github.guiritter.image_component;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Aggregates the paint timings of one or more {@link ImageComponent}s,
+ * and publishes them as a JMX MBean. Paint durations are counted in a
+ * histogram whose bucket {@code i} holds durations from {@code 2^i}
+ * up to {@code 2^(i+1)} nanoseconds, from which percentiles are estimated.
+ * Usage example:<blockquote><pre> PaintMetrics metrics = new PaintMetrics();
+ * component.addPaintListener(metrics);
+ * metrics.register("dashboard");</pre></blockquote>
+ * This class is thread safe.
+ * @author Guilherme Alan Ritter
+ */
+public final class PaintMetrics implements PaintListener, PaintMetricsMBean {
+
+    /**
+     * Weight of each new interval between paints in
+     * {@link #paintIntervalAverage}.
+     */
+    private static final double INTERVAL_WEIGHT = 0.1;
+
+    private long imageChangeCount = 0;
+
+    private long imageChangeNanos = 0;
+
+    private long images = 0;
+
+    /**
+     * Exponential moving average of the nanoseconds between paints.
+     */
+    private double paintIntervalAverage = 0;
+
+    private long paintCount = 0;
+
+    private long paintLast = 0;
+
+    private long paintNanos = 0;
+
+    private final long paintNanosHistogram[] = new long[Long.SIZE];
+
+    private long paintNanosMax = 0;
+
+    private long pixels = 0;
+
+    @Override
+    public synchronized long getImageChangeCount() {
+        return imageChangeCount;
+    }
+
+    @Override
+    public synchronized double getImageChangeNanosMean() {
+        return (imageChangeCount == 0)
+         ? 0 : ((double) imageChangeNanos) / imageChangeCount;
+    }
+
+    @Override
+    public synchronized double getImagesPerPaint() {
+        return (paintCount == 0) ? 0 : ((double) images) / paintCount;
+    }
+
+    @Override
+    public synchronized long getPaintCount() {
+        return paintCount;
+    }
+
+    @Override
+    public long getPaintNanos50th() {
+        return getPaintNanosPercentile(0.5);
+    }
+
+    @Override
+    public long getPaintNanos90th() {
+        return getPaintNanosPercentile(0.9);
+    }
+
+    @Override
+    public long getPaintNanos99th() {
+        return getPaintNanosPercentile(0.99);
+    }
+
+    @Override
+    public synchronized long[] getPaintNanosHistogram() {
+        return paintNanosHistogram.clone();
+    }
+
+    @Override
+    public synchronized long getPaintNanosMax() {
+        return paintNanosMax;
+    }
+
+    @Override
+    public synchronized double getPaintNanosMean() {
+        return (paintCount == 0) ? 0 : ((double) paintNanos) / paintCount;
+    }
+
+    /**
+     * Estimates a percentile of the paint durations from the histogram.
+     * @param fraction from 0 to 1
+     * @return the upper limit of the bucket containing the percentile,
+     * in nanoseconds, or zero if nothing was painted
+     */
+    public synchronized long getPaintNanosPercentile(double fraction) {
+        if (paintCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * paintCount);
+        long seen = 0;
+        for (int i = 0; i < paintNanosHistogram.length; i++) {
+            seen += paintNanosHistogram[i];
+            if (seen >= Math.max(1, rank)) {
+                return Math.min(paintNanosMax, (2L << i) - 1);
+            }
+        }
+        return paintNanosMax;
+    }
+
+    @Override
+    public synchronized double getPaintsPerSecond() {
+        return (paintIntervalAverage == 0) ? 0 : (1e9 / paintIntervalAverage);
+    }
+
+    @Override
+    public synchronized double getPixelsPerPaint() {
+        return (paintCount == 0) ? 0 : ((double) pixels) / paintCount;
+    }
+
+    @Override
+    public synchronized void imageChanged(
+     ImageComponent component, long nanos) {
+        imageChangeCount++;
+        imageChangeNanos += nanos;
+    }
+
+    @Override
+    public synchronized void painted(
+     ImageComponent component, long nanos, long pixels, int images) {
+        long now = System.nanoTime();
+        if (paintCount > 0) {
+            long interval = now - paintLast;
+            paintIntervalAverage = (paintIntervalAverage == 0)
+             ? interval
+             : ((INTERVAL_WEIGHT * interval)
+              + ((1 - INTERVAL_WEIGHT) * paintIntervalAverage));
+        }
+        paintLast = now;
+        paintCount++;
+        paintNanos += nanos;
+        paintNanosMax = Math.max(paintNanosMax, nanos);
+        paintNanosHistogram[
+         (Long.SIZE - 1) - Long.numberOfLeadingZeros(Math.max(1, nanos))]++;
+        this.pixels += pixels;
+        this.images += images;
+    }
+
+    /**
+     * Publishes these metrics in the platform MBean server, as
+     * {@code io.github.guiritter.image_component:type=PaintMetrics,name=}
+     * followed by the given name.
+     * @param name identifies these metrics among others
+     * @return the name under which these metrics were published
+     * @throws JMException if the name is invalid or already taken
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName(
+         "io.github.guiritter.image_component:type=PaintMetrics,name="
+          + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(
+         this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public synchronized void reset() {
+        imageChangeCount = 0;
+        imageChangeNanos = 0;
+        images = 0;
+        paintIntervalAverage = 0;
+        paintCount = 0;
+        paintNanos = 0;
+        paintNanosMax = 0;
+        pixels = 0;
+        Arrays.fill(paintNanosHistogram, 0);
+    }
+}
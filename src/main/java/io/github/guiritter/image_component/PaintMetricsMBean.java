@@ -0,0 +1,34 @@
+package io.github.guiritter.image_component;
+
+/**
+ * Management interface of {@link PaintMetrics}.
+ * @author Guilherme Alan Ritter
+ */
+public interface PaintMetricsMBean {
+
+    long getImageChangeCount();
+
+    double getImageChangeNanosMean();
+
+    double getImagesPerPaint();
+
+    long getPaintCount();
+
+    long getPaintNanos50th();
+
+    long getPaintNanos90th();
+
+    long getPaintNanos99th();
+
+    long[] getPaintNanosHistogram();
+
+    long getPaintNanosMax();
+
+    double getPaintNanosMean();
+
+    double getPaintsPerSecond();
+
+    double getPixelsPerPaint();
+
+    void reset();
+}
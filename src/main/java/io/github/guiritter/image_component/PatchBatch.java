@@ -0,0 +1,192 @@
+package io.github.guiritter.image_component;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * Writes patches of pixels straight into an image and gathers the regions
+ * they changed, so that all patches written before the event dispatch
+ * thread gets to them are signaled as a single change of their union.
+ * Patches can be written from any thread.
+ * @author Guilherme Alan Ritter
+ */
+final class PatchBatch implements Runnable {
+
+    /**
+     * Union of the regions patched since the last signal,
+     * or null if there are none.
+     */
+    private Rectangle region = null;
+
+    /**
+     * Signaled of the union of the patched regions,
+     * on the event dispatch thread.
+     */
+    private final Consumer<Rectangle> target;
+
+    /**
+     * Adds a patched region to the batch, scheduling the signal
+     * if it's the first one since the last signal.
+     * @param patched the patched region
+     */
+    synchronized void add(Rectangle patched) {
+        if (region == null) {
+            region = new Rectangle(patched);
+            SwingUtilities.invokeLater(this);
+        } else {
+            region.add(patched);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if a region isn't inside an image
+     */
+    private static void check(BufferedImage image, Rectangle patched) {
+        if (!new Rectangle(0, 0, image.getWidth(), image.getHeight())
+         .contains(patched)) {
+            throw new IllegalArgumentException("Patch " + patched
+             + " is outside of the image, whose size is "
+             + image.getWidth() + "x" + image.getHeight() + ".");
+        }
+    }
+
+    /**
+     * @return index of the pixel at (0, 0) of a raster in its data array,
+     * as if the raster extended that far
+     */
+    private static int getOffset(Raster raster) {
+        return raster.getDataBuffer().getOffset()
+         - (raster.getSampleModelTranslateY() * getStride(raster))
+         - raster.getSampleModelTranslateX();
+    }
+
+    private static int getStride(Raster raster) {
+        return ((SinglePixelPackedSampleModel) raster.getSampleModel())
+         .getScanlineStride();
+    }
+
+    /**
+     * @return whether the pixels of an image are ints in the same layout
+     * as the default RGB color model, apart from alpha for opaque images
+     */
+    private static boolean isDefaultRGB(BufferedImage image) {
+        return (image.getType() == BufferedImage.TYPE_INT_ARGB)
+         || (image.getType() == BufferedImage.TYPE_INT_RGB);
+    }
+
+    /**
+     * @return whether two rasters store pixels as single ints
+     * with the same masks, so that rows can be copied as they are
+     */
+    private static boolean isSameIntLayout(Raster source, Raster target) {
+        if ((source.getDataBuffer().getDataType() != DataBuffer.TYPE_INT)
+         || (target.getDataBuffer().getDataType() != DataBuffer.TYPE_INT)
+         || (!(source.getSampleModel()
+          instanceof SinglePixelPackedSampleModel))
+         || (!(target.getSampleModel()
+          instanceof SinglePixelPackedSampleModel))) {
+            return false;
+        }
+        return Arrays.equals(
+         ((SinglePixelPackedSampleModel) source.getSampleModel())
+          .getBitMasks(),
+         ((SinglePixelPackedSampleModel) target.getSampleModel())
+          .getBitMasks());
+    }
+
+    /**
+     * Signals the union of the regions patched since the last signal.
+     */
+    @Override
+    public void run() {
+        Rectangle patched;
+        synchronized (this) {
+            patched = region;
+            region = null;
+        }
+        if (patched != null) {
+            target.accept(patched);
+        }
+    }
+
+    /**
+     * Writes a rectangle of pixels in the default RGB color model into
+     * an image, copying whole rows when the image stores pixels the same way.
+     * @param image where the pixels are written
+     * @param x horizontal position of the rectangle in the image
+     * @param y vertical position of the rectangle in the image
+     * @param width width of the rectangle
+     * @param height height of the rectangle
+     * @param pixels the pixels, as by {@link BufferedImage#getRGB(int, int)}
+     * @param offset index of the top left pixel of the rectangle in the array
+     * @param scanSize distance between rows in the array
+     * @return the patched region
+     */
+    static Rectangle write(BufferedImage image, int x, int y,
+     int width, int height, int pixels[], int offset, int scanSize) {
+        Rectangle patched = new Rectangle(x, y, width, height);
+        check(image, patched);
+        if (!isDefaultRGB(image)) {
+            image.setRGB(x, y, width, height, pixels, offset, scanSize);
+            return patched;
+        }
+        WritableRaster raster = image.getRaster();
+        int data[] = ((DataBufferInt) raster.getDataBuffer()).getData();
+        int stride = getStride(raster);
+        int targetIndex = getOffset(raster) + (y * stride) + x;
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(pixels, offset + (row * scanSize),
+             data, targetIndex + (row * stride), width);
+        }
+        return patched;
+    }
+
+    /**
+     * Writes a raster into an image, copying whole rows when both store
+     * pixels the same way. The raster must be compatible with the image.
+     * @param image where the pixels are written
+     * @param x horizontal position of the raster in the image
+     * @param y vertical position of the raster in the image
+     * @param pixels the pixels, in the same format as the image
+     * @return the patched region
+     */
+    static Rectangle write(BufferedImage image, int x, int y, Raster pixels) {
+        Rectangle patched
+         = new Rectangle(x, y, pixels.getWidth(), pixels.getHeight());
+        check(image, patched);
+        WritableRaster raster = image.getRaster();
+        if (!isSameIntLayout(pixels, raster)) {
+            raster.setRect(x - pixels.getMinX(), y - pixels.getMinY(), pixels);
+            return patched;
+        }
+        int source[] = ((DataBufferInt) pixels.getDataBuffer()).getData();
+        int sourceStride = getStride(pixels);
+        int sourceIndex = getOffset(pixels)
+         + (pixels.getMinY() * sourceStride) + pixels.getMinX();
+        int target[] = ((DataBufferInt) raster.getDataBuffer()).getData();
+        int targetStride = getStride(raster);
+        int targetIndex = getOffset(raster) + (y * targetStride) + x;
+        for (int row = 0; row < patched.height; row++) {
+            System.arraycopy(source, sourceIndex + (row * sourceStride),
+             target, targetIndex + (row * targetStride), patched.width);
+        }
+        return patched;
+    }
+
+    /**
+     * Creates an empty batch.
+     * @param target signaled of the union of the patched regions,
+     * on the event dispatch thread
+     */
+    PatchBatch(Consumer<Rectangle> target) {
+        this.target = target;
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.guiritter.image_component;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads tiles from a file containing nothing but the pixels of an image,
+ * row after row, each pixel being a 32 bit ARGB integer. The file is
+ * memory-mapped, so pixels are only paged in when a tile is read,
+ * and never count against the heap.
+ * @author Guilherme Alan Ritter
+ */
+public final class RawTileSource implements TileSource, Closeable {
+
+    /**
+     * Whether the alpha byte of each pixel is meaningful.
+     */
+    private final boolean alpha;
+
+    private final FileChannel channel;
+
+    private final int height;
+
+    /**
+     * How many rows of the image fit in each of {@link #segments}.
+     */
+    private final int segmentRows;
+
+    /**
+     * The file, mapped in slices of whole rows, since a single mapping
+     * can't be larger than 2 GB.
+     */
+    private final IntBuffer segments[];
+
+    private final int tileHeight;
+
+    private final int tileWidth;
+
+    private final int width;
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    @Override
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public BufferedImage readTile(int column, int row) throws IOException {
+        int x = column * tileWidth;
+        int y = row * tileHeight;
+        if ((column < 0) || (row < 0) || (x >= width) || (y >= height)) {
+            throw new IndexOutOfBoundsException(
+             "Tile: " + column + ", " + row);
+        }
+        int w = Math.min(tileWidth , width  - x);
+        int h = Math.min(tileHeight, height - y);
+        BufferedImage tile = new BufferedImage(w, h, alpha
+         ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int data[] = ((DataBufferInt) tile.getRaster().getDataBuffer())
+         .getData();
+        for (int i = 0; i < h; i++) {
+            // duplicate, because positions are not thread safe
+            IntBuffer segment = segments[(y + i) / segmentRows].duplicate();
+            segment.position((((y + i) % segmentRows) * width) + x);
+            segment.get(data, i * w, w);
+        }
+        return tile;
+    }
+
+    /**
+     * Maps a raw file as an image.
+     * @param file file with {@code width * height} 32 bit ARGB pixels
+     * @param width width of the image
+     * @param height height of the image
+     * @param order byte order of the pixels in the file
+     * @param alpha whether the alpha byte of the pixels is meaningful
+     * @param tileWidth width of the tiles
+     * @param tileHeight height of the tiles
+     * @throws IOException if the file could not be mapped
+     */
+    public RawTileSource(File file, int width, int height, ByteOrder order,
+     boolean alpha, int tileWidth, int tileHeight) throws IOException {
+        if ((width <= 0) || (height <= 0)
+         || (tileWidth <= 0) || (tileHeight <= 0)) {
+            throw new IllegalArgumentException(
+             "Sizes must be positive.");
+        }
+        this.width = width;
+        this.height = height;
+        this.alpha = alpha;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        long rowBytes = width * 4L;
+        if (rowBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Image is too wide.");
+        }
+        segmentRows = (int) Math.min(height, Integer.MAX_VALUE / rowBytes);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            if (channel.size() < rowBytes * height) {
+                throw new IOException("File is smaller than the image.");
+            }
+            segments = new IntBuffer[
+             (height + segmentRows - 1) / segmentRows];
+            for (int i = 0; i < segments.length; i++) {
+                int rows = Math.min(segmentRows, height - (i * segmentRows));
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                 i * segmentRows * rowBytes, rows * rowBytes)
+                 .order(order).asIntBuffer();
+            }
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+}
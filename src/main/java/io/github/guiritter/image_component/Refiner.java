@@ -0,0 +1,206 @@
+package io.github.guiritter.image_component;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * Keeps a high quality rendering of a region of a scaled image, rendered
+ * in the background once the image, where it's painted and what is visible
+ * have stayed the same for a while. Until then, callers paint a cheap
+ * rendering instead. Work started for anything that changed before it
+ * finished is cancelled, or discarded if it already started.
+ * Must only be used on the event dispatch thread.
+ * @author Guilherme Alan Ritter
+ */
+final class Refiner {
+
+    /**
+     * Called after a rendering is swapped in, for example to repaint.
+     */
+    private final Runnable listener;
+
+    /**
+     * Where the whole image is painted, for the pending rendering.
+     */
+    private Rectangle pendingPlacement = null;
+
+    /**
+     * Region of the component to be rendered by the pending rendering.
+     */
+    private Rectangle pendingRegion = null;
+
+    /**
+     * Renders the pending region, on a background thread.
+     */
+    private Callable<BufferedImage> pendingRender = null;
+
+    /**
+     * The image, for the pending rendering.
+     */
+    private BufferedImage pendingSource = null;
+
+    /**
+     * The high quality rendering, or null if there is none.
+     */
+    private BufferedImage refined = null;
+
+    /**
+     * Where the whole image was painted when {@link #refined} was rendered.
+     */
+    private Rectangle refinedPlacement = null;
+
+    /**
+     * Region of the component shown by {@link #refined}.
+     */
+    private Rectangle refinedRegion = null;
+
+    /**
+     * The image {@link #refined} was rendered from.
+     */
+    private BufferedImage refinedSource = null;
+
+    /**
+     * The rendering running in the background, or null if there is none.
+     */
+    private Future<?> running = null;
+
+    /**
+     * Starts the pending rendering after the image has stayed the same
+     * for the idle delay.
+     */
+    private final Timer timer;
+
+    /**
+     * Discards the rendering and any work towards it,
+     * because the pixels of the image changed.
+     */
+    void invalidate() {
+        timer.stop();
+        cancel();
+        pendingSource = null;
+        pendingRender = null;
+        refined = null;
+        refinedSource = null;
+    }
+
+    private void cancel() {
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+    }
+
+    /**
+     * Returns the high quality rendering of a region if there is one,
+     * or schedules it to be rendered after the idle delay otherwise,
+     * cancelling the work for anything else.
+     * @param source the image
+     * @param placement where the whole image is painted
+     * @param region the region of the component to be shown,
+     * inside the placement
+     * @param render renders the region into a new image,
+     * on a background thread
+     * @return a rendering that covers the region, to be painted at the
+     * position of {@link #getRegion()}, or null if there is none yet
+     */
+    BufferedImage get(BufferedImage source, Rectangle placement,
+     Rectangle region, Callable<BufferedImage> render) {
+        if ((refined != null) && (refinedSource == source)
+         && placement.equals(refinedPlacement)
+         && refinedRegion.contains(region)) {
+            return refined;
+        }
+        if ((pendingSource != source) || (!placement.equals(pendingPlacement))
+         || (!pendingRegion.contains(region))) {
+            cancel();
+            pendingSource = source;
+            pendingPlacement = placement;
+            pendingRegion = region;
+            pendingRender = render;
+        }
+        if (pendingRender == null) {
+            // rendering this failed, so it's only tried again once
+            // something changes
+            return null;
+        }
+        // still changing, so wait until it stops
+        timer.restart();
+        return null;
+    }
+
+    /**
+     * @return region of the component shown by the rendering
+     * returned by {@link #get}
+     */
+    Rectangle getRegion() {
+        return refinedRegion;
+    }
+
+    /**
+     * @param delay milliseconds without changes before rendering starts
+     */
+    void setDelay(int delay) {
+        timer.setInitialDelay(delay);
+    }
+
+    /**
+     * Starts the pending rendering in the background.
+     */
+    private void start() {
+        if ((pendingRender == null) || (running != null)) {
+            return;
+        }
+        final Callable<BufferedImage> render = pendingRender;
+        running = ImageLoad.EXECUTOR.submit(() -> {
+            BufferedImage rendered = null;
+            try {
+                rendered = render.call();
+            } catch (Exception ex) {
+                // keeps painting the cheap rendering
+            } finally {
+                // even after errors, so that later renderings can start
+                swap(render, rendered);
+            }
+        });
+    }
+
+    /**
+     * Swaps in a finished rendering, on the event dispatch thread,
+     * unless it went stale while it was rendered.
+     * @param render what rendered it
+     * @param rendered the rendering, or null if it failed, in which case
+     * the same region isn't rendered again until something changes
+     */
+    private void swap(Callable<BufferedImage> render, BufferedImage rendered) {
+        SwingUtilities.invokeLater(() -> {
+            if (render != pendingRender) {
+                return;
+            }
+            running = null;
+            pendingRender = null;
+            if (rendered == null) {
+                return;
+            }
+            refined = rendered;
+            refinedSource = pendingSource;
+            refinedPlacement = pendingPlacement;
+            refinedRegion = pendingRegion;
+            listener.run();
+        });
+    }
+
+    /**
+     * Creates a refiner with nothing rendered.
+     * @param delay milliseconds without changes before rendering starts
+     * @param listener called after a rendering is swapped in
+     */
+    Refiner(int delay, Runnable listener) {
+        this.listener = listener;
+        timer = new Timer(delay, event -> start());
+        timer.setRepeats(false);
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.guiritter.image_component;
+
+import java.awt.Rectangle;
+
+/**
+ * How an image is scaled to the area of a component.
+ * @author Guilherme Alan Ritter
+ */
+public enum ScaleMode {
+
+    /**
+     * The image is painted at its original size,
+     * with its top left corner at the top left corner of the component.
+     */
+    NONE,
+
+    /**
+     * The image is scaled, keeping its aspect ratio, to the largest size
+     * that fits inside the component, and centered.
+     */
+    FIT,
+
+    /**
+     * The image is scaled, keeping its aspect ratio, to the smallest size
+     * that covers the whole component, and centered.
+     * The parts outside the component are cropped.
+     */
+    FILL,
+
+    /**
+     * The image is scaled to the size of the component,
+     * ignoring its aspect ratio.
+     */
+    STRETCH,
+
+    /**
+     * The image is scaled by the zoom of the component, and panned
+     * so that its view origin is at the top left corner of the component.
+     * Zoomed out images are painted from a {@link MipMap}.
+     * Since the placement depends on the component,
+     * {@link #place(int, int, int, int)} treats this mode as {@link #NONE}.
+     */
+    ZOOM;
+
+    /**
+     * Computes where an image is painted inside an area.
+     * @param imageWidth width of the image
+     * @param imageHeight height of the image
+     * @param areaWidth width of the area
+     * @param areaHeight height of the area
+     * @return position and size of the painted image, relative to the area
+     */
+    public Rectangle place(
+     int imageWidth, int imageHeight, int areaWidth, int areaHeight) {
+        if ((this == NONE) || (this == ZOOM)
+         || (imageWidth <= 0) || (imageHeight <= 0)) {
+            return new Rectangle(0, 0, imageWidth, imageHeight);
+        }
+        if (this == STRETCH) {
+            return new Rectangle(0, 0, areaWidth, areaHeight);
+        }
+        double scaleX = ((double) areaWidth) / imageWidth;
+        double scaleY = ((double) areaHeight) / imageHeight;
+        double scale = (this == FIT)
+         ? Math.min(scaleX, scaleY)
+         : Math.max(scaleX, scaleY);
+        int width = Math.max(1, (int) Math.round(imageWidth * scale));
+        int height = Math.max(1, (int) Math.round(imageHeight * scale));
+        return new Rectangle((areaWidth - width) / 2,
+         (areaHeight - height) / 2, width, height);
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.guiritter.image_component;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * Keeps the last scaled copy of an image, so that it's only scaled again
+ * when the image, the target size or the interpolation change.
+ * This class is not synchronized.
+ * @author Guilherme Alan Ritter
+ */
+final class ScaledImage {
+
+    private int height;
+
+    private Object interpolation;
+
+    private BufferedImage scaled = null;
+
+    private BufferedImage source = null;
+
+    private int width;
+
+    /**
+     * Scales an image. When the image is reduced to less than half of its size
+     * with an interpolation other than nearest neighbor, it's reduced in
+     * steps of at most half its size, since a single step would skip
+     * most of the pixels and alias.
+     * @param source the image to be scaled
+     * @param width width of the scaled image
+     * @param height height of the scaled image
+     * @param interpolation one of the
+     * {@link RenderingHints#KEY_INTERPOLATION} values
+     * @return a new image, in a pixel format that is fast to blend
+     */
+    static BufferedImage scale(BufferedImage source,
+     int width, int height, Object interpolation) {
+        int type = source.getColorModel().hasAlpha()
+         ? BufferedImage.TYPE_INT_ARGB_PRE : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = source;
+        do {
+            int stepWidth = width;
+            int stepHeight = height;
+            if (interpolation
+             != RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR) {
+                stepWidth = Math.max(width, current.getWidth() / 2);
+                stepHeight = Math.max(height, current.getHeight() / 2);
+            }
+            BufferedImage step = new BufferedImage(stepWidth, stepHeight, type);
+            Graphics2D g = step.createGraphics();
+            g.setComposite(AlphaComposite.Src);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+            g.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            g.dispose();
+            current = step;
+        } while ((current.getWidth() != width)
+         || (current.getHeight() != height));
+        return current;
+    }
+
+    /**
+     * Returns the scaled copy of an image, scaling it only if the last
+     * copy was made from another image, size or interpolation.
+     * @param source the image to be scaled
+     * @param width width of the scaled image
+     * @param height height of the scaled image
+     * @param interpolation one of the
+     * {@link RenderingHints#KEY_INTERPOLATION} values
+     * @return the scaled copy, or the image itself if it already has that size
+     */
+    BufferedImage get(BufferedImage source,
+     int width, int height, Object interpolation) {
+        if ((source.getWidth() == width) && (source.getHeight() == height)) {
+            return source;
+        }
+        if ((scaled == null) || (this.source != source)
+         || (this.width != width) || (this.height != height)
+         || (this.interpolation != interpolation)) {
+            scaled = scale(source, width, height, interpolation);
+            this.source = source;
+            this.width = width;
+            this.height = height;
+            this.interpolation = interpolation;
+        }
+        return scaled;
+    }
+
+    /**
+     * Discards the scaled copy, because the pixels of the image changed.
+     */
+    void invalidate() {
+        scaled = null;
+        source = null;
+    }
+}
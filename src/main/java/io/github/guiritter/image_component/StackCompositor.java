@@ -0,0 +1,338 @@
+package io.github.guiritter.image_component;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Flattens a {@link LayerStack} into a single image, splitting the work
+ * in bands of rows blended in parallel by a fork-join pool.
+ * Layers are blended directly on the pixel arrays, with the same
+ * arithmetic as Java2D's source-over loops, so the result is identical
+ * to drawing each visible layer with {@link java.awt.AlphaComposite#SrcOver}
+ * and its opacity. Layers hidden by an opaque layer above them inside the
+ * flattened region are skipped. Layers with other {@link BlendMode}s are
+ * blended the same way as by {@link BlendComposite}. Layers whose images
+ * are not {@link BufferedImage#TYPE_INT_ARGB},
+ * {@link BufferedImage#TYPE_INT_ARGB_PRE} or {@link BufferedImage#TYPE_INT_RGB}
+ * are converted first to the one with the same alpha representation.
+ * Doesn't need a display, so it can be used outside of components.
+ * @author Guilherme Alan Ritter
+ */
+public final class StackCompositor {
+
+    /**
+     * How many pixels each band has, at least, before it's split no more.
+     */
+    private static final int BAND_PIXELS = 1 << 16;
+
+    /**
+     * Java2D's table for multiplying two 8 bit alpha or color values,
+     * {@code MUL8[(a << 8) | b] = round(a * b / 255)}.
+     */
+    static final byte MUL8[] = new byte[256 * 256];
+
+    private final ForkJoinPool pool;
+
+    static {
+        int i;
+        int j;
+        for (i = 1; i < 256; i++) {
+            int increment = (i << 16) + (i << 8) + i;
+            int value = increment + (1 << 23);
+            for (j = 1; j < 256; j++) {
+                MUL8[(i << 8) | j] = (byte) (value >>> 24);
+                value += increment;
+            }
+        }
+    }
+
+    /**
+     * A layer ready to be blended: its pixels and where they go.
+     */
+    private static final class Source {
+
+        final int data[];
+
+        /**
+         * Opacity of the layer, from 0 to 255.
+         */
+        final int extraAlpha;
+
+        final int height;
+
+        final BlendMode mode;
+
+        final int offset;
+
+        final boolean opaque;
+
+        final boolean premultiplied;
+
+        final int stride;
+
+        final int width;
+
+        final int x;
+
+        final int y;
+
+        Source(BufferedImage image, int x, int y, float opacity,
+         BlendMode mode) {
+            data = getData(image);
+            offset = getOffset(image.getRaster());
+            stride = getStride(image.getRaster());
+            width = image.getWidth();
+            height = image.getHeight();
+            opaque = image.getType() == BufferedImage.TYPE_INT_RGB;
+            premultiplied = image.getType() == BufferedImage.TYPE_INT_ARGB_PRE;
+            extraAlpha = (int) ((opacity * 255.0) + 0.5);
+            this.mode = mode;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /**
+     * Blends the sources into a band of rows of the target.
+     */
+    private static final class Band extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int rowFirst;
+
+        private final int rowLast;
+
+        private final Source sources[];
+
+        private final int target[];
+
+        private final int targetOffset;
+
+        private final int targetStride;
+
+        private final int x1;
+
+        private final int x2;
+
+        @Override
+        protected void compute() {
+            int rows = rowLast - rowFirst;
+            if ((rows > 1) && ((rows * (x2 - x1)) > BAND_PIXELS)) {
+                int middle = rowFirst + (rows / 2);
+                invokeAll(
+                 new Band(sources, target, targetOffset, targetStride,
+                  x1, x2, rowFirst, middle),
+                 new Band(sources, target, targetOffset, targetStride,
+                  x1, x2, middle, rowLast));
+                return;
+            }
+            int y;
+            for (y = rowFirst; y < rowLast; y++) {
+                int start = targetOffset + (y * targetStride);
+                Arrays.fill(target, start + x1, start + x2, 0);
+            }
+            for (Source source : sources) {
+                int sx1 = Math.max(x1, source.x);
+                int sx2 = Math.min(x2, source.x + source.width);
+                int sy1 = Math.max(rowFirst, source.y);
+                int sy2 = Math.min(rowLast, source.y + source.height);
+                for (y = sy1; y < sy2; y++) {
+                    int sourceIndex = source.offset
+                     + ((y - source.y) * source.stride) + (sx1 - source.x);
+                    int targetIndex = targetOffset + (y * targetStride) + sx1;
+                    if (source.mode == BlendMode.NORMAL) {
+                        blendRow(source, sourceIndex,
+                         target, targetIndex, sx2 - sx1);
+                    } else {
+                        BlendComposite.blendRow(source.mode, source.data,
+                         sourceIndex, source.opaque, source.premultiplied,
+                         source.extraAlpha, target, targetIndex, sx2 - sx1);
+                    }
+                }
+            }
+        }
+
+        Band(Source sources[], int target[], int targetOffset,
+         int targetStride, int x1, int x2, int rowFirst, int rowLast) {
+            this.sources = sources;
+            this.target = target;
+            this.targetOffset = targetOffset;
+            this.targetStride = targetStride;
+            this.x1 = x1;
+            this.x2 = x2;
+            this.rowFirst = rowFirst;
+            this.rowLast = rowLast;
+        }
+    }
+
+    /**
+     * Blends a span of pixels of a source over premultiplied target pixels.
+     */
+    private static void blendRow(Source source, int sourceIndex,
+     int target[], int targetIndex, int length) {
+        int data[] = source.data;
+        int extraAlpha = source.extraAlpha;
+        boolean opaque = source.opaque;
+        boolean premultiplied = source.premultiplied;
+        for (int i = 0; i < length; i++) {
+            int pixel = data[sourceIndex + i];
+            int sourceAlpha = opaque ? 0xFF : (pixel >>> 24);
+            int resultAlpha = MUL8[(extraAlpha << 8) | sourceAlpha] & 0xFF;
+            if (resultAlpha == 0) {
+                continue;
+            }
+            if ((resultAlpha == 0xFF) && (extraAlpha == 0xFF)) {
+                target[targetIndex + i] = pixel | 0xFF000000;
+                continue;
+            }
+            int factor = premultiplied ? extraAlpha : resultAlpha;
+            int r = (pixel >> 16) & 0xFF;
+            int g = (pixel >>  8) & 0xFF;
+            int b =  pixel        & 0xFF;
+            if (factor < 0xFF) {
+                r = MUL8[(factor << 8) | r] & 0xFF;
+                g = MUL8[(factor << 8) | g] & 0xFF;
+                b = MUL8[(factor << 8) | b] & 0xFF;
+            }
+            if (resultAlpha < 0xFF) {
+                int targetPixel = target[targetIndex + i];
+                int inverse = (0xFF - resultAlpha) << 8;
+                resultAlpha += MUL8[inverse | (targetPixel >>> 24)] & 0xFF;
+                r += MUL8[inverse | ((targetPixel >> 16) & 0xFF)] & 0xFF;
+                g += MUL8[inverse | ((targetPixel >>  8) & 0xFF)] & 0xFF;
+                b += MUL8[inverse | ( targetPixel        & 0xFF)] & 0xFF;
+            }
+            target[targetIndex + i]
+             = (resultAlpha << 24) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    /**
+     * Flattens the visible layers of a stack into an image, replacing
+     * its pixels. Layers are placed at their positions relative to the
+     * top left corner of the image.
+     * @param layers the stack to be flattened
+     * @param target a {@link BufferedImage#TYPE_INT_ARGB_PRE} image
+     */
+    public void composite(LayerStack layers, BufferedImage target) {
+        composite(layers, target, null);
+    }
+
+    /**
+     * Flattens the visible layers of a stack into a region of an image,
+     * replacing its pixels there and leaving the rest untouched.
+     * Layers are placed at their positions relative to the
+     * top left corner of the image.
+     * @param layers the stack to be flattened
+     * @param target a {@link BufferedImage#TYPE_INT_ARGB_PRE} image
+     * @param region the region to be flattened, or null for the whole image
+     */
+    public void composite(
+     LayerStack layers, BufferedImage target, Rectangle region) {
+        if (target.getType() != BufferedImage.TYPE_INT_ARGB_PRE) {
+            throw new IllegalArgumentException(
+             "Target must be of type TYPE_INT_ARGB_PRE.");
+        }
+        Rectangle area = new Rectangle(
+         0, 0, target.getWidth(), target.getHeight());
+        if (region != null) {
+            area = area.intersection(region);
+        }
+        if (area.isEmpty()) {
+            return;
+        }
+        ArrayList<Source> sources = new ArrayList<>(layers.size());
+        Layer layer = layers.getBottom();
+        for (Layer top = layers.getTop(); top != null; top = top.getBelow()) {
+            if (top.hides(top.getBounds(), area)) {
+                layer = top;
+                break;
+            }
+        }
+        for (; layer != null; layer = layer.getAbove()) {
+            if (layer.isVisible() && (layer.getOpacity() > 0f)
+             && layer.getBounds().intersects(area)) {
+                sources.add(new Source(getBlendable(layer),
+                 layer.getX(), layer.getY(), layer.getOpacity(),
+                 layer.getBlendMode()));
+            }
+        }
+        WritableRaster raster = target.getRaster();
+        pool.invoke(new Band(sources.toArray(new Source[sources.size()]),
+         getData(target), getOffset(raster), getStride(raster),
+         area.x, area.x + area.width, area.y, area.y + area.height));
+    }
+
+    /**
+     * @return the image of a layer in one of the formats blended directly,
+     * converted only once and kept on the layer until its pixels change
+     */
+    private static BufferedImage getBlendable(Layer layer) {
+        BufferedImage image
+         = (layer.painted == null) ? layer.getImage() : layer.painted;
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_ARGB_PRE:
+            case BufferedImage.TYPE_INT_RGB:
+                return image;
+            default:
+                // same alpha representation, so the blend is the same
+                BufferedImage converted = new BufferedImage(
+                 image.getWidth(), image.getHeight(),
+                 image.getColorModel().hasAlpha()
+                  ? (image.isAlphaPremultiplied()
+                   ? BufferedImage.TYPE_INT_ARGB_PRE
+                   : BufferedImage.TYPE_INT_ARGB)
+                  : BufferedImage.TYPE_INT_RGB);
+                ImageComponent.copyRegion(image, converted, null);
+                // kept in sync with the image by Layer.changed
+                layer.painted = converted;
+                return converted;
+        }
+    }
+
+    private static int[] getData(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * @return index of the top left pixel of a raster in its data array,
+     * which isn't zero for sub-images
+     */
+    private static int getOffset(WritableRaster raster) {
+        return raster.getDataBuffer().getOffset()
+         - (raster.getSampleModelTranslateY() * getStride(raster))
+         - raster.getSampleModelTranslateX();
+    }
+
+    private static int getStride(WritableRaster raster) {
+        return ((SinglePixelPackedSampleModel) raster.getSampleModel())
+         .getScanlineStride();
+    }
+
+    /**
+     * Creates a compositor that runs on the common fork-join pool.
+     */
+    public StackCompositor() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a compositor that runs on a specific pool.
+     * @param pool where the bands are blended
+     */
+    public StackCompositor(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new NullPointerException("pool");
+        }
+        this.pool = pool;
+    }
+}
@@ -0,0 +1,422 @@
+package io.github.guiritter.image_component;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+
+/**
+ * Renders {@link LayerStack}s to images without any component or display,
+ * with the same pixels an {@link ImageComponentMultiple} of the same size,
+ * {@link ScaleMode}, interpolation, caching and pixel format settings
+ * paints for them. Meant for batches of independent stacks, such as
+ * thumbnails rendered by a server, which are rendered in parallel
+ * by a pool of threads. At most a fixed number of stacks are submitted
+ * and not yet rendered at once, so that memory stays bounded no matter
+ * how large the batch is; submitting blocks until there's room.
+ * Stacks are created by the workers themselves, from {@link Callable}s,
+ * so that their images are only read when about to be rendered.
+ * Usage example:<blockquote><pre> StackRenderer renderer
+ *  = new StackRenderer();
+ * renderer.setSize(new Dimension(256, 256));
+ * renderer.setScaleMode(ScaleMode.FIT);
+ * for (Job job : jobs) {
+ *     renderer.submit(job::readLayers, "png", job::openOutput);
+ * }
+ * renderer.shutdown();</pre></blockquote>
+ * Zoom mode is not supported, since it depends on a component's view.
+ * Settings are read once when each stack starts to be rendered.
+ * This class is thread safe.
+ * @author Guilherme Alan Ritter
+ */
+public final class StackRenderer {
+
+    /**
+     * Whether the stack is flattened at its original size, then scaled.
+     */
+    private volatile boolean cached = false;
+
+    private final ExecutorService executor;
+
+    /**
+     * Whether images are converted to a pixel format that is fast to blend.
+     */
+    private volatile boolean fastFormat = false;
+
+    private volatile Object interpolation
+     = RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+
+    /**
+     * Room for stacks submitted and not yet rendered.
+     */
+    private final Semaphore pending;
+
+    private volatile ScaleMode scaleMode = ScaleMode.NONE;
+
+    /**
+     * Size of the rendered images, or null to follow the first image.
+     */
+    private volatile Dimension size = null;
+
+    /**
+     * Draws an image of a stack scaled by the same factor as the first image,
+     * as {@link ImageComponentMultiple} does.
+     */
+    private static void drawScaled(Graphics2D g, BufferedImage image,
+     Rectangle placement, int imageWidth, int imageHeight, int x, int y,
+     Object interpolation) {
+        if (placement.isEmpty()) {
+            return;
+        }
+        Rectangle drawn = ImageComponentMultiple.toDrawn(
+         placement, imageWidth, imageHeight,
+         new Rectangle(x, y, image.getWidth(), image.getHeight()));
+        ImageComponent.drawClipped(g, new ScaledImage().get(image,
+         drawn.width, drawn.height, interpolation), drawn.x, drawn.y);
+    }
+
+    /**
+     * Flattens the visible layers of a stack at their original size,
+     * as {@link ImageComponentMultiple} does when caching is enabled.
+     * @return the flattened stack, or null if it has no area
+     */
+    private static BufferedImage flatten(
+     LayerStack layers, boolean fastFormat) {
+        int width = 0;
+        int height = 0;
+        for (Layer layer : layers) {
+            Rectangle bounds = layer.getBounds();
+            width = Math.max(width, bounds.x + bounds.width);
+            height = Math.max(height, bounds.y + bounds.height);
+        }
+        if ((width <= 0) || (height <= 0)) {
+            return null;
+        }
+        BufferedImage composite
+         = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = composite.createGraphics();
+        g.clipRect(0, 0, width, height);
+        ImageComponentMultiple.drawLayers(g, layers, null, layer ->
+         ImageComponent.drawClipped(g, getPaintedImage(layer, fastFormat),
+          layer.getX(), layer.getY()));
+        g.dispose();
+        return composite;
+    }
+
+    public Object getInterpolation() {
+        return interpolation;
+    }
+
+    /**
+     * @return what is painted for a layer, without changing the layer
+     */
+    private static BufferedImage getPaintedImage(
+     Layer layer, boolean fastFormat) {
+        if (!fastFormat) {
+            return layer.getImage();
+        }
+        return (layer.painted == null)
+         ? ImageComponent.toFastFormat(layer.getImage()) : layer.painted;
+    }
+
+    public ScaleMode getScaleMode() {
+        return scaleMode;
+    }
+
+    /**
+     * @return size of the rendered images, or null if they have the size
+     * of the first image of their stacks
+     */
+    public Dimension getSize() {
+        Dimension current = size;
+        return (current == null) ? null : new Dimension(current);
+    }
+
+    /**
+     * Returns the size of the image rendered for a stack.
+     * @param layers the stack
+     * @return the size set, or the size of the first image of the stack
+     */
+    public Dimension getSize(LayerStack layers) {
+        Dimension current = size;
+        if (current != null) {
+            return new Dimension(current);
+        }
+        if (layers.isEmpty()) {
+            return new Dimension(0, 0);
+        }
+        Rectangle first = layers.getBottom().getBounds();
+        return new Dimension(first.width, first.height);
+    }
+
+    /**
+     * @return true if the stack is flattened before being scaled
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * @return true if images are converted to a pixel format
+     * that is fast to blend
+     */
+    public boolean isFastFormat() {
+        return fastFormat;
+    }
+
+    /**
+     * Renders a stack to a new {@link BufferedImage#TYPE_INT_ARGB_PRE} image,
+     * transparent where no layer is painted.
+     * @param layers the stack to be rendered
+     * @return the rendered image
+     */
+    public BufferedImage render(LayerStack layers) {
+        return render(layers, BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    /**
+     * Renders a stack to a new image of a type.
+     */
+    private BufferedImage render(LayerStack layers, int type) {
+        Dimension renderedSize = getSize(layers);
+        if ((renderedSize.width <= 0) || (renderedSize.height <= 0)) {
+            throw new IllegalArgumentException(
+             "Nothing to render, size is " + renderedSize.width
+             + "x" + renderedSize.height + ".");
+        }
+        BufferedImage target = new BufferedImage(
+         renderedSize.width, renderedSize.height, type);
+        render(layers, target);
+        return target;
+    }
+
+    /**
+     * Renders a stack over the current pixels of an image, the same as
+     * a component of the size of the image paints over its background.
+     * The size set for this renderer is ignored.
+     * @param layers the stack to be rendered
+     * @param target where the stack is rendered
+     */
+    public void render(LayerStack layers, BufferedImage target) {
+        boolean cached = this.cached;
+        boolean fastFormat = this.fastFormat;
+        Object interpolation = this.interpolation;
+        ScaleMode scaleMode = this.scaleMode;
+        if (layers.isEmpty()) {
+            return;
+        }
+        Rectangle first = layers.getBottom().getBounds();
+        int imageWidth = first.width;
+        int imageHeight = first.height;
+        Rectangle placement = (scaleMode == ScaleMode.NONE) ? null
+         : scaleMode.place(imageWidth, imageHeight,
+          target.getWidth(), target.getHeight());
+        Graphics2D g = target.createGraphics();
+        // as set by the component's paint, so that hidden layers are skipped
+        g.clipRect(0, 0, target.getWidth(), target.getHeight());
+        if (cached) {
+            BufferedImage composite = flatten(layers, fastFormat);
+            if (composite == null) {
+                // nothing to draw
+            } else if (placement == null) {
+                ImageComponent.drawClipped(g, composite, 0, 0);
+            } else {
+                drawScaled(g, composite, placement, imageWidth, imageHeight,
+                 0, 0, interpolation);
+            }
+        } else {
+            ImageComponentMultiple.drawLayers(g, layers, placement, layer -> {
+                BufferedImage painted = getPaintedImage(layer, fastFormat);
+                if (placement == null) {
+                    ImageComponent.drawClipped(g, painted,
+                     layer.getX(), layer.getY());
+                } else {
+                    drawScaled(g, painted, placement, imageWidth, imageHeight,
+                     layer.getX(), layer.getY(), interpolation);
+                }
+            });
+        }
+        g.dispose();
+    }
+
+    /**
+     * Sets whether the stack is flattened at its original size before
+     * being scaled, as by {@link ImageComponentMultiple#setCached(boolean)}.
+     * @param cached true to flatten before scaling,
+     * false to scale each layer
+     */
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
+    /**
+     * Sets whether images are converted to a pixel format that is fast
+     * to blend, as by {@link ImageComponent#setFastFormat(boolean)}.
+     * @param fastFormat true to convert images, false to use them as they are
+     */
+    public void setFastFormat(boolean fastFormat) {
+        this.fastFormat = fastFormat;
+    }
+
+    /**
+     * Sets the interpolation used when images are scaled.
+     * @param interpolation one of the
+     * {@link RenderingHints#KEY_INTERPOLATION} values
+     */
+    public void setInterpolation(Object interpolation) {
+        if (!RenderingHints.KEY_INTERPOLATION.isCompatibleValue(
+         interpolation)) {
+            throw new IllegalArgumentException(
+             "Not an interpolation rendering hint value: " + interpolation);
+        }
+        this.interpolation = interpolation;
+    }
+
+    /**
+     * Sets how the first image of each stack is scaled to the rendered size,
+     * the others being scaled by the same factor.
+     * @param scaleMode how images are scaled, other than zoom mode
+     */
+    public void setScaleMode(ScaleMode scaleMode) {
+        if (scaleMode == null) {
+            throw new NullPointerException("scaleMode");
+        }
+        if (scaleMode == ScaleMode.ZOOM) {
+            throw new IllegalArgumentException(
+             "Zoom mode is only valid for components.");
+        }
+        this.scaleMode = scaleMode;
+    }
+
+    /**
+     * Sets the size of the rendered images.
+     * @param size the size, or null to follow the size of the first image
+     * of each stack
+     */
+    public void setSize(Dimension size) {
+        this.size = (size == null) ? null : new Dimension(size);
+    }
+
+    /**
+     * Stops the workers once the stacks already submitted are rendered.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Runs a task on a worker once there's room for it.
+     */
+    private <T> CompletableFuture<T> start(Callable<T> task)
+     throws InterruptedException {
+        pending.acquire();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable ex) {
+                    future.completeExceptionally(ex);
+                } finally {
+                    pending.release();
+                }
+            });
+        } catch (RuntimeException ex) {
+            pending.release();
+            throw ex;
+        }
+        return future;
+    }
+
+    /**
+     * Starts rendering a stack in the background, waiting first
+     * if too many stacks are already waiting to be rendered.
+     * @param layers creates the stack to be rendered, on a worker
+     * @return completed with the image rendered by {@link #render(LayerStack)}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public CompletableFuture<BufferedImage> submit(
+     Callable<LayerStack> layers) throws InterruptedException {
+        return start(() -> render(layers.call()));
+    }
+
+    /**
+     * Starts rendering a stack in the background and writing it to a stream,
+     * waiting first if too many stacks are already waiting to be rendered.
+     * The image is not kept once written, and the stream is closed.
+     * @param layers creates the stack to be rendered, on a worker
+     * @param formatName the informal name of an {@link ImageIO} format,
+     * such as "png"
+     * @param output opens the stream the image is written to, on a worker
+     * @return completed once the stream is closed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public CompletableFuture<Void> submit(Callable<LayerStack> layers,
+     String formatName, Callable<? extends OutputStream> output)
+     throws InterruptedException {
+        return start(() -> {
+            LayerStack stack = layers.call();
+            try (OutputStream stream = output.call()) {
+                write(stack, formatName, stream);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Renders a stack and writes it to a stream, which is not closed.
+     * The stack is rendered to a {@link BufferedImage#TYPE_INT_ARGB} image,
+     * or over black to a {@link BufferedImage#TYPE_INT_RGB} image
+     * for formats without alpha, such as JPEG.
+     * @param layers the stack to be rendered
+     * @param formatName the informal name of an {@link ImageIO} format,
+     * such as "png"
+     * @param output where the image is written
+     * @throws IOException if the image could not be written
+     */
+    public void write(LayerStack layers, String formatName,
+     OutputStream output) throws IOException {
+        int type = ImageIO.getImageWriters(
+         ImageTypeSpecifier.createFromBufferedImageType(
+          BufferedImage.TYPE_INT_ARGB), formatName).hasNext()
+         ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        if (!ImageIO.write(render(layers, type), formatName, output)) {
+            throw new IOException("No writer for format: " + formatName);
+        }
+    }
+
+    /**
+     * Creates a renderer with a worker for each processor.
+     */
+    public StackRenderer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a renderer.
+     * @param threads how many stacks are rendered at once;
+     * twice as many may be waiting to be rendered
+     */
+    public StackRenderer(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException(
+             "Threads must be positive: " + threads);
+        }
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "StackRenderer worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pending = new Semaphore(threads * 3);
+    }
+}
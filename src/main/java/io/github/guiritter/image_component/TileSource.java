@@ -0,0 +1,44 @@
+package io.github.guiritter.image_component;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Something that provides an image one fixed-size tile at a time,
+ * so that the whole image never needs to be in memory.
+ * Tiles are numbered from the top left corner of the image, and the tiles
+ * in the last column and row may be smaller than the others.
+ * Implementations must allow tiles to be read from any thread.
+ * @author Guilherme Alan Ritter
+ */
+public interface TileSource {
+
+    /**
+     * @return the height of the whole image
+     */
+    int getHeight();
+
+    /**
+     * @return the height of every tile, except maybe the ones in the last row
+     */
+    int getTileHeight();
+
+    /**
+     * @return the width of every tile, except maybe the ones in the last column
+     */
+    int getTileWidth();
+
+    /**
+     * @return the width of the whole image
+     */
+    int getWidth();
+
+    /**
+     * Reads one tile of the image.
+     * @param column horizontal index of the tile
+     * @param row vertical index of the tile
+     * @return a new image with the pixels of the tile
+     * @throws IOException if the tile could not be read
+     */
+    BufferedImage readTile(int column, int row) throws IOException;
+}
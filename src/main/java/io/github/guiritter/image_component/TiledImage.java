@@ -0,0 +1,176 @@
+package io.github.guiritter.image_component;
+
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An image too large to be in memory, painted from tiles that are read
+ * on demand from a {@link TileSource}. The most recently painted tiles are
+ * kept in memory, up to a budget in bytes, and the least recently painted
+ * ones are discarded beyond that.
+ * This class is not synchronized.
+ * @author Guilherme Alan Ritter
+ */
+public final class TiledImage {
+
+    /**
+     * Maximum amount of bytes held by {@link #tiles}.
+     */
+    private final long budget;
+
+    /**
+     * Amount of bytes currently held by {@link #tiles}.
+     */
+    private long bytes = 0;
+
+    private long tileHitCount = 0;
+
+    private long tileLoadCount = 0;
+
+    /**
+     * Tiles in memory, from least to most recently used,
+     * keyed by their row and column.
+     */
+    private final LinkedHashMap<Long, BufferedImage> tiles
+     = new LinkedHashMap<>(16, 0.75f, true);
+
+    public final TileSource source;
+
+    private static long getBytes(BufferedImage tile) {
+        return ((long) tile.getWidth()) * tile.getHeight()
+         * tile.getColorModel().getPixelSize() / 8;
+    }
+
+    /**
+     * @return amount of bytes currently held by tiles in memory
+     */
+    public long getCachedBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the height of the whole image
+     */
+    public int getHeight() {
+        return source.getHeight();
+    }
+
+    /**
+     * @return how many times a tile was painted from memory
+     */
+    public long getTileHitCount() {
+        return tileHitCount;
+    }
+
+    /**
+     * @return how many times a tile was read from the source
+     */
+    public long getTileLoadCount() {
+        return tileLoadCount;
+    }
+
+    /**
+     * @return the width of the whole image
+     */
+    public int getWidth() {
+        return source.getWidth();
+    }
+
+    /**
+     * Returns a tile, reading it from the source if it's not in memory.
+     * @throws UncheckedIOException if the tile could not be read
+     */
+    private BufferedImage getTile(int column, int row) {
+        Long key = (((long) row) << 32) | column;
+        BufferedImage tile = tiles.get(key);
+        if (tile != null) {
+            tileHitCount++;
+            return tile;
+        }
+        try {
+            tile = source.readTile(column, row);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        tileLoadCount++;
+        tiles.put(key, tile);
+        bytes += getBytes(tile);
+        return tile;
+    }
+
+    /**
+     * Discards the least recently used tiles until the budget is respected,
+     * or until only the most recently used tiles remain.
+     * @param keep how many of the most recently used tiles to keep anyway
+     */
+    private void evict(int keep) {
+        Iterator<Map.Entry<Long, BufferedImage>> iterator
+         = tiles.entrySet().iterator();
+        while ((bytes > budget) && (tiles.size() > keep)) {
+            bytes -= getBytes(iterator.next().getValue());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Discards all tiles in memory.
+     */
+    public void flush() {
+        tiles.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Paints the tiles that intersect the clip of the graphics context.
+     * Tiles painted now are kept in memory even if they alone
+     * exceed the budget.
+     * @param g where to paint
+     * @param x horizontal position of the top left corner of the image
+     * @param y vertical position of the top left corner of the image
+     * @throws UncheckedIOException if a tile could not be read
+     */
+    public void paint(Graphics g, int x, int y) {
+        Rectangle area = new Rectangle(x, y, getWidth(), getHeight());
+        Rectangle clip = g.getClipBounds();
+        if (clip != null) {
+            area = area.intersection(clip);
+        }
+        if (area.isEmpty()) {
+            return;
+        }
+        int tileWidth = source.getTileWidth();
+        int tileHeight = source.getTileHeight();
+        int columnFirst = (area.x - x) / tileWidth;
+        int columnLast = (area.x + area.width - x - 1) / tileWidth;
+        int rowFirst = (area.y - y) / tileHeight;
+        int rowLast = (area.y + area.height - y - 1) / tileHeight;
+        int column;
+        int row;
+        for (row = rowFirst; row <= rowLast; row++) {
+            for (column = columnFirst; column <= columnLast; column++) {
+                ImageComponent.drawClipped(g, getTile(column, row),
+                 x + (column * tileWidth), y + (row * tileHeight));
+            }
+        }
+        evict((rowLast - rowFirst + 1) * (columnLast - columnFirst + 1));
+    }
+
+    /**
+     * Creates an image backed by tiles.
+     * @param source where the tiles are read from
+     * @param budget maximum amount of bytes of tiles to keep in memory
+     */
+    public TiledImage(TileSource source, long budget) {
+        if (source == null) {
+            throw new NullPointerException("source");
+        }
+        this.source = source;
+        this.budget = budget;
+    }
+}
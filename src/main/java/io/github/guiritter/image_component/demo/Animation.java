@@ -0,0 +1,90 @@
+package io.github.guiritter.image_component.demo;
+
+import io.github.guiritter.image_component.FramePlayer;
+import io.github.guiritter.image_component.FrameSequence;
+import io.github.guiritter.image_component.ImageComponent;
+import io.github.guiritter.image_component.ImageSource;
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import javax.swing.JButton;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.JSlider;
+import javax.swing.Timer;
+
+public final class Animation {
+
+    static {
+        JFrame.setDefaultLookAndFeelDecorated(true);
+    }
+
+    /**
+     * Plays the image file given as argument, such as an animated GIF,
+     * or generated frames otherwise.
+     */
+    public static void main(String args[]) throws IOException {
+        FrameSequence sequence;
+        if (args.length > 0) {
+            sequence = FrameSequence.of(new File(args[0]));
+        } else {
+            ArrayList<ImageSource> frames = new ArrayList<>();
+            for (int i = 0; i < 600; i++) {
+                final int number = i;
+                frames.add(() -> {
+                    BufferedImage image = new BufferedImage(
+                     640, 480, BufferedImage.TYPE_INT_RGB);
+                    int data[] = ((DataBufferInt) image.getRaster()
+                     .getDataBuffer()).getData();
+                    for (int p = 0; p < data.length; p++) {
+                        int x = p % 640;
+                        int y = p / 640;
+                        data[p] = (((x + number) & 0xFF) << 16)
+                         | (((y + (number * 2)) & 0xFF) << 8) | (number & 0xFF);
+                    }
+                    return image;
+                });
+            }
+            sequence = FrameSequence.of(frames, 1000 / 60);
+        }
+        final FramePlayer player = new FramePlayer(sequence, 16, 64 << 20);
+        ImageComponent component = new ImageComponent();
+        component.setFrameStream(player.getStream());
+        final JSlider slider
+         = new JSlider(0, sequence.getFrameCount() - 1, 0);
+        slider.addChangeListener(e -> {
+            if (slider.getValueIsAdjusting()) {
+                player.seek(slider.getValue());
+            }
+        });
+        final JButton button = new JButton("Play");
+        button.addActionListener((ActionEvent e) -> {
+            if (player.isPlaying()) {
+                player.pause();
+                button.setText("Play");
+            } else {
+                player.play();
+                button.setText("Pause");
+            }
+        });
+        new Timer(100, (ActionEvent e) -> {
+            if (!slider.getValueIsAdjusting()) {
+                slider.setValue(Math.max(0, player.getFrameIndex()));
+            }
+        }).start();
+        JPanel controls = new JPanel(new BorderLayout());
+        controls.add(button, BorderLayout.WEST);
+        controls.add(slider, BorderLayout.CENTER);
+        JFrame frame = new JFrame("ImageComponent Demo Animation");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.getContentPane().add(component, BorderLayout.CENTER);
+        frame.getContentPane().add(controls, BorderLayout.SOUTH);
+        frame.pack();
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(true);
+    }
+}
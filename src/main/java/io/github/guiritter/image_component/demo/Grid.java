@@ -0,0 +1,76 @@
+package io.github.guiritter.image_component.demo;
+
+import io.github.guiritter.image_component.ImageGrid;
+import io.github.guiritter.image_component.ImageSource;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import javax.swing.JFrame;
+import javax.swing.JScrollPane;
+
+public final class Grid {
+
+    static {
+        JFrame.setDefaultLookAndFeelDecorated(true);
+    }
+
+    /**
+     * Creates a large image whose colors depend on a number.
+     */
+    private static final class Generated implements ImageSource {
+
+        private final int number;
+
+        @Override
+        public boolean equals(Object other) {
+            return (other instanceof Generated)
+             && (((Generated) other).number == number);
+        }
+
+        @Override
+        public int hashCode() {
+            return number;
+        }
+
+        @Override
+        public BufferedImage read() {
+            BufferedImage image
+             = new BufferedImage(1024, 768, BufferedImage.TYPE_INT_RGB);
+            WritableRaster raster = image.getRaster();
+            int x;
+            int y;
+            int color[] = {0, 0, 0};
+            for (y = 0; y < image.getHeight(); y++) {
+                for (x = 0; x < image.getWidth(); x++) {
+                    color[0] = (x / 4 + number * 7) & 0xFF;
+                    color[1] = ((x ^ y) & 64) * 3;
+                    color[2] = (y / 3 + number * 13) & 0xFF;
+                    raster.setPixel(x, y, color);
+                }
+            }
+            return image;
+        }
+
+        Generated(int number) {
+            this.number = number;
+        }
+    }
+
+    public static void main(String args[]) {
+        ArrayList<ImageSource> items = new ArrayList<>();
+        for (int number = 0; number < 50000; number++) {
+            items.add(new Generated(number));
+        }
+        ImageGrid grid = new ImageGrid(128, 128);
+        grid.setItems(items);
+        JScrollPane pane = new JScrollPane(grid);
+        pane.setPreferredSize(new Dimension(720, 540));
+        JFrame frame = new JFrame("ImageComponent Demo Grid");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.getContentPane().add(pane);
+        frame.pack();
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(true);
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.guiritter.image_component.demo;
+
+import io.github.guiritter.image_component.ImageComponent;
+import io.github.guiritter.image_component.ScaleMode;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import javax.swing.JFrame;
+import javax.swing.JTabbedPane;
+
+public final class Lazy {
+
+    static {
+        JFrame.setDefaultLookAndFeelDecorated(true);
+    }
+
+    /**
+     * Stands for a slow decode.
+     */
+    private static BufferedImage render(int index) {
+        System.out.println("Decoding image " + index);
+        BufferedImage image
+         = new BufferedImage(2048, 1536, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.getHSBColor(index / 24f, 0.5f, 0.9f));
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.setColor(Color.BLACK);
+        g.setFont(g.getFont().deriveFont(400f));
+        g.drawString(Integer.toString(index), 600, 1000);
+        g.dispose();
+        return image;
+    }
+
+    public static void main(String args[]) {
+        JTabbedPane tabs = new JTabbedPane();
+        for (int i = 0; i < 24; i++) {
+            final int index = i;
+            ImageComponent component = new ImageComponent();
+            component.setImageSource(() -> render(index), 2048, 1536);
+            component.setReleaseDelay(5000);
+            component.setScaleMode(ScaleMode.FIT);
+            component.setPreferredSize(new Dimension(640, 480));
+            component.setMinimumSize(new Dimension(0, 0));
+            tabs.addTab("Image " + i, component);
+        }
+        JFrame frame = new JFrame("ImageComponent Demo Lazy");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.getContentPane().add(tabs);
+        frame.pack();
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(true);
+    }
+}
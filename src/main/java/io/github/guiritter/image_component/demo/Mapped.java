@@ -0,0 +1,66 @@
+package io.github.guiritter.image_component.demo;
+
+import io.github.guiritter.image_component.ImageComponent;
+import io.github.guiritter.image_component.MappedImage;
+import io.github.guiritter.image_component.ScaleMode;
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferUShort;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+
+public final class Mapped {
+
+    static {
+        JFrame.setDefaultLookAndFeelDecorated(true);
+    }
+
+    public static void main(String args[]) {
+        final int side = 8192;
+        BufferedImage image
+         = new BufferedImage(side, side, BufferedImage.TYPE_USHORT_GRAY);
+        short data[] = ((DataBufferUShort) image.getRaster()
+         .getDataBuffer()).getData();
+        int x;
+        int y;
+        for (y = 0; y < side; y++) {
+            for (x = 0; x < side; x++) {
+                double dx = (x - (side / 2)) / (double) side;
+                double dy = (y - (side / 2)) / (double) side;
+                data[(y * side) + x] = (short) (65535 * (0.5 + (0.5
+                 * Math.cos(40 * Math.sqrt((dx * dx) + (dy * dy))))));
+            }
+        }
+        final MappedImage mapped = new MappedImage(image.getRaster());
+        ImageComponent component = new ImageComponent();
+        component.setMappedImage(mapped);
+        component.setPreferredSize(new Dimension(800, 800));
+        component.setMinimumSize(new Dimension(0, 0));
+        component.setScaleMode(ScaleMode.FIT);
+        final JLabel label = new JLabel("Drag to change the window");
+        MouseAdapter drag = new MouseAdapter() {
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                double center
+                 = 65536.0 * e.getX() / e.getComponent().getWidth();
+                double width = Math.max(1,
+                 65536.0 * e.getY() / e.getComponent().getHeight());
+                mapped.setWindow(center, width);
+                label.setText(String.format("center %.0f, width %.0f",
+                 center, width));
+            }
+        };
+        component.addMouseMotionListener(drag);
+        JFrame frame = new JFrame("ImageComponent Demo Mapped");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.getContentPane().add(component, BorderLayout.CENTER);
+        frame.getContentPane().add(label, BorderLayout.SOUTH);
+        frame.pack();
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(true);
+    }
+}
@@ -1,11 +1,14 @@
 package io.github.guiritter.image_component.demo;
 
+import io.github.guiritter.image_component.BlendMode;
 import io.github.guiritter.image_component.ImageComponentMultiple;
+import io.github.guiritter.image_component.Layer;
 import java.awt.event.ActionEvent;
 import java.awt.image.BufferedImage;
 import java.awt.image.WritableRaster;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
+import javax.swing.JComboBox;
 import javax.swing.JFrame;
 
 public final class Multiple {
@@ -50,31 +53,25 @@ public final class Multiple {
         multiple.setPreferredSize(multiple.getSize());
         multiple.setMaximumSize(multiple.getSize());
         multiple.update();
+        final Layer layer0 = multiple.layers.get(0);
+        final Layer layer1 = multiple.layers.get(1);
         JFrame frame = new JFrame("ImageComponent Demo Multiple");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.getContentPane().setLayout(
          new BoxLayout(frame.getContentPane(), BoxLayout.Y_AXIS));
         frame.getContentPane().add(multiple);
         JButton button = new JButton("toggle 0");
-        button.addActionListener((ActionEvent e) -> {
-            if (multiple.images.contains(image0)) {
-                multiple.images.remove(image0);
-            } else {
-                multiple.images.add(image0);
-            }
-            multiple.update();
-        });
+        button.addActionListener((ActionEvent e)
+         -> layer0.setVisible(!layer0.isVisible()));
         frame.getContentPane().add(button);
         button = new JButton("toggle 1");
-        button.addActionListener((ActionEvent e) -> {
-            if (multiple.images.contains(image1)) {
-                multiple.images.remove(image1);
-            } else {
-                multiple.images.add(image1);
-            }
-            multiple.update();
-        });
+        button.addActionListener((ActionEvent e)
+         -> layer1.setVisible(!layer1.isVisible()));
         frame.getContentPane().add(button);
+        final JComboBox<BlendMode> mode = new JComboBox<>(BlendMode.values());
+        mode.addActionListener((ActionEvent e)
+         -> layer1.setBlendMode((BlendMode) mode.getSelectedItem()));
+        frame.getContentPane().add(mode);
         frame.pack();
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
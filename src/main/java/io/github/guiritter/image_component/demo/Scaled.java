@@ -0,0 +1,65 @@
+package io.github.guiritter.image_component.demo;
+
+import io.github.guiritter.image_component.ImageComponent;
+import io.github.guiritter.image_component.ScaleMode;
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+
+public final class Scaled {
+
+    static {
+        JFrame.setDefaultLookAndFeelDecorated(true);
+    }
+
+    public static void main(String args[]) {
+        BufferedImage image
+         = new BufferedImage(4096, 2048, BufferedImage.TYPE_INT_RGB);
+        WritableRaster raster = image.getRaster();
+        int x;
+        int y;
+        int color[] = {0, 0, 0};
+        for (y = 0; y < image.getHeight(); y++) {
+            for (x = 0; x < image.getWidth(); x++) {
+                color[0] = x / 16;
+                color[1] = ((x ^ y) & 8) * 31;
+                color[2] = y / 8;
+                raster.setPixel(x, y, color);
+            }
+        }
+        final ImageComponent component = new ImageComponent(image);
+        component.setPreferredSize(new Dimension(512, 256));
+        component.setMinimumSize(new Dimension(0, 0));
+        component.setScaleMode(ScaleMode.FIT);
+        component.setZoomInteractive(true);
+        component.setZoom(0.125);
+        final JComboBox<ScaleMode> mode = new JComboBox<>(ScaleMode.values());
+        mode.setSelectedItem(ScaleMode.FIT);
+        mode.addActionListener((ActionEvent e) -> component.setScaleMode(
+         (ScaleMode) mode.getSelectedItem()));
+        final JCheckBox adaptive = new JCheckBox("Adaptive bicubic");
+        adaptive.addActionListener((ActionEvent e) -> {
+            component.setInterpolation(adaptive.isSelected()
+             ? RenderingHints.VALUE_INTERPOLATION_BICUBIC
+             : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            component.setAdaptiveQuality(adaptive.isSelected());
+        });
+        JPanel options = new JPanel(new BorderLayout());
+        options.add(mode, BorderLayout.CENTER);
+        options.add(adaptive, BorderLayout.EAST);
+        JFrame frame = new JFrame("ImageComponent Demo Scaled");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.getContentPane().add(component, BorderLayout.CENTER);
+        frame.getContentPane().add(options, BorderLayout.SOUTH);
+        frame.pack();
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(true);
+    }
+}
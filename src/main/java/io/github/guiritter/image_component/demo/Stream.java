@@ -0,0 +1,63 @@
+package io.github.guiritter.image_component.demo;
+
+import io.github.guiritter.image_component.FrameStream;
+import io.github.guiritter.image_component.ImageComponent;
+import java.awt.BorderLayout;
+import java.awt.event.ActionEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.Timer;
+
+public final class Stream {
+
+    static {
+        JFrame.setDefaultLookAndFeelDecorated(true);
+    }
+
+    public static void main(String args[]) {
+        final int width = 640;
+        final int height = 480;
+        final FrameStream stream = new FrameStream(
+         width, height, BufferedImage.TYPE_INT_RGB, 3);
+        Thread producer = new Thread(() -> {
+            int frame = 0;
+            try {
+                while (true) {
+                    BufferedImage image = stream.acquire();
+                    int data[] = ((DataBufferInt) image.getRaster()
+                     .getDataBuffer()).getData();
+                    int x;
+                    int y;
+                    for (y = 0; y < height; y++) {
+                        for (x = 0; x < width; x++) {
+                            data[(y * width) + x] = (((x + frame) & 0xFF) << 16)
+                             | (((y + frame) & 0xFF) << 8) | (frame & 0xFF);
+                        }
+                    }
+                    stream.publish(image);
+                    frame++;
+                    Thread.sleep(4); // about 240 frames per second
+                }
+            } catch (InterruptedException ex) {
+                // done
+            }
+        }, "producer");
+        producer.setDaemon(true);
+        ImageComponent component = new ImageComponent();
+        component.setFrameStream(stream);
+        final JLabel label = new JLabel();
+        new Timer(500, (ActionEvent e) -> label.setText(String.format(
+         "produced %d, painted %d, dropped %d", stream.getProducedCount(),
+         stream.getPaintedCount(), stream.getDroppedCount()))).start();
+        JFrame frame = new JFrame("ImageComponent Demo Stream");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.getContentPane().add(component, BorderLayout.CENTER);
+        frame.getContentPane().add(label, BorderLayout.SOUTH);
+        frame.pack();
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(true);
+        producer.start();
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.guiritter.image_component.demo;
+
+import io.github.guiritter.image_component.ImageComponent;
+import io.github.guiritter.image_component.RawTileSource;
+import io.github.guiritter.image_component.TiledImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import javax.swing.JFrame;
+import javax.swing.JScrollPane;
+
+public final class Tiled {
+
+    static {
+        JFrame.setDefaultLookAndFeelDecorated(true);
+    }
+
+    public static void main(String args[]) throws IOException {
+        int width = 16384;
+        int height = 16384;
+        File file = File.createTempFile("tiled", ".raw");
+        file.deleteOnExit();
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+         StandardOpenOption.WRITE)) {
+            ByteBuffer row = ByteBuffer.allocate(width * 4)
+             .order(ByteOrder.BIG_ENDIAN);
+            int x;
+            int y;
+            for (y = 0; y < height; y++) {
+                row.clear();
+                for (x = 0; x < width; x++) {
+                    row.putInt(((x ^ y) & 0xFF) | ((x >> 6) << 8)
+                     | ((y >> 6) << 16));
+                }
+                row.flip();
+                channel.write(row);
+            }
+        }
+        ImageComponent component = new ImageComponent();
+        component.setTiledImage(new TiledImage(new RawTileSource(file,
+         width, height, ByteOrder.BIG_ENDIAN, false, 256, 256), 64L << 20));
+        JFrame frame = new JFrame("ImageComponent Demo Tiled");
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.getContentPane().add(new JScrollPane(component));
+        frame.setSize(800, 600);
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(true);
+    }
+}